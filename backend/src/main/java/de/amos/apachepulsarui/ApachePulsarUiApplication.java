@@ -6,16 +6,19 @@
 
 package de.amos.apachepulsarui;
 
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling
 public class ApachePulsarUiApplication {
 
 	@Value("${frontend.url}")
@@ -30,7 +33,9 @@ public class ApachePulsarUiApplication {
 		return new WebMvcConfigurer() {
 			@Override
 			public void addCorsMappings(CorsRegistry corsRegistry) {
-				corsRegistry.addMapping("/**").allowedOrigins(allowedOrigin);
+				corsRegistry.addMapping("/**")
+						.allowedOrigins(allowedOrigin)
+						.exposedHeaders(TopologySnapshot.AGE_HEADER);
 			}
 		};
 	}
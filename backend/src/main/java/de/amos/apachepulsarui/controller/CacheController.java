@@ -1,5 +1,9 @@
 package de.amos.apachepulsarui.controller;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import de.amos.apachepulsarui.dto.CacheStatsDto;
+import de.amos.apachepulsarui.dto.CachesStatsDto;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
@@ -8,6 +12,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Objects;
 
 @RestController
@@ -16,12 +21,27 @@ import java.util.Objects;
 public class CacheController {
 
     private final CacheManager cacheManager;
+    private final TopologySnapshot topologySnapshot;
 
     @GetMapping("/flush")
     public ResponseEntity<Void> flush() {
         cacheManager.getCacheNames()
                 .forEach(cache -> Objects.requireNonNull(cacheManager.getCache(cache)).clear());
+        // listings read from the snapshot, so a flush has to bring it up to date as well. The caches are cleared
+        // already, so an unreachable admin API only leaves the previous snapshot in place.
+        topologySnapshot.tryRefresh();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<CachesStatsDto> stats() {
+        List<CacheStatsDto> stats = cacheManager.getCacheNames().stream()
+                .map(cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .filter(cache -> cache.getNativeCache() instanceof Cache<?, ?>)
+                .map(cache -> CacheStatsDto.create(cache.getName(), (Cache<?, ?>) cache.getNativeCache()))
+                .toList();
+        return new ResponseEntity<>(new CachesStatsDto(stats), HttpStatus.OK);
+    }
+
 }
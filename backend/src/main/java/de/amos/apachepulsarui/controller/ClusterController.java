@@ -3,6 +3,7 @@ package de.amos.apachepulsarui.controller;
 import de.amos.apachepulsarui.dto.ClusterDetailDto;
 import de.amos.apachepulsarui.dto.ClustersDto;
 import de.amos.apachepulsarui.service.ClusterService;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class ClusterController {
 
     private final ClusterService clusterService;
+    private final TopologySnapshot topologySnapshot;
 
     @GetMapping()
     public ResponseEntity<ClusterDetailDto> getClusterDetails(@RequestParam String clusterName) {
@@ -25,7 +27,8 @@ public class ClusterController {
 
     @GetMapping("/all")
     public ResponseEntity<ClustersDto> getAll() {
-        return new ResponseEntity<>(new ClustersDto(clusterService.getAllNames()), HttpStatus.OK);
+        ClustersDto clustersDto = new ClustersDto(clusterService.getAllNames());
+        return new ResponseEntity<>(clustersDto, TopologyHeaders.of(topologySnapshot), HttpStatus.OK);
     }
 
 }
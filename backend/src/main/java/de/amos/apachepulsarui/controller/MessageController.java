@@ -6,17 +6,41 @@
 
 package de.amos.apachepulsarui.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.amos.apachepulsarui.dto.AvroFieldStatsDto;
+import de.amos.apachepulsarui.dto.LatestValuesDto;
+import de.amos.apachepulsarui.dto.MessageAnalyticsDto;
 import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.dto.MessagePageDto;
+import de.amos.apachepulsarui.dto.MessageSearchResultDto;
 import de.amos.apachepulsarui.dto.MessagesDto;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import de.amos.apachepulsarui.service.AvroFieldStatsService;
+import de.amos.apachepulsarui.service.LatestValueCache;
+import de.amos.apachepulsarui.service.MessageAnalyticsService;
+import de.amos.apachepulsarui.service.MessageExportService;
+import de.amos.apachepulsarui.service.MessageFilter;
+import de.amos.apachepulsarui.service.MessageLookupService;
+import de.amos.apachepulsarui.service.MessageSearchService;
 import de.amos.apachepulsarui.service.MessageService;
+import de.amos.apachepulsarui.service.MessageStreamWriter;
+import de.amos.apachepulsarui.service.MessageTailService;
+import de.amos.apachepulsarui.service.PayloadMatcher;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Set;
@@ -27,19 +51,228 @@ import java.util.Set;
 public class MessageController {
 
     private final MessageService messageService;
+    private final MessageSearchService messageSearchService;
+    private final MessageLookupService messageLookupService;
+    private final LatestValueCache latestValueCache;
+    private final MessageExportService messageExportService;
+    private final MessageTailService messageTailService;
+    private final MessageAnalyticsService messageAnalyticsService;
+    private final AvroFieldStatsService avroFieldStatsService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${messages.stream.max-bytes}")
+    private long streamMaxBytes;
+
+    /**
+     * How long a regular expression may take to match a single payload before the search fails.
+     */
+    @Value("${messages.search.regex-timeout-millis}")
+    private long searchRegexTimeoutMillis;
 
     @GetMapping
     @Operation(
             summary = "Returns the latest messages of a topic ordered by publish time. " +
-                      "Be aware that messages are deduplicated by their id and you might get less messages than you requested."
+                      "Be aware that messages are deduplicated by their id and you might get less messages than you requested. " +
+                      "If from and/or to (epoch millis) are given, the messages published in that window are returned instead, " +
+                      "at most numMessages of them. Long payloads are cut to a preview, fetch /messages/{messageId} for the whole payload. " +
+                      "The messages can be filtered by key, by properties (property=name:value, repeatable) and by an event time " +
+                      "window (eventTimeFrom/eventTimeTo, epoch millis); messages not matching are never decoded."
     )
     public ResponseEntity<MessagesDto> getMessages(@RequestParam String topic,
                                                    @RequestParam(required = false, defaultValue = "10") Integer numMessages,
                                                    @RequestParam(required = false, defaultValue = "") List<String> producers,
-                                                   @RequestParam(required = false, defaultValue = "") List<String> subscriptions)
+                                                   @RequestParam(required = false, defaultValue = "") List<String> subscriptions,
+                                                   @RequestParam(required = false) Long from,
+                                                   @RequestParam(required = false) Long to,
+                                                   @RequestParam(required = false) String key,
+                                                   @RequestParam(required = false, defaultValue = "") List<String> property,
+                                                   @RequestParam(required = false) Long eventTimeFrom,
+                                                   @RequestParam(required = false) Long eventTimeTo)
     {
-        Set<MessageDto> messageDtos = messageService.getLatestMessagesFiltered(topic, numMessages, producers, subscriptions);
+        MessageFilter messageFilter = MessageFilter.of(key, property, eventTimeFrom, eventTimeTo);
+        Set<MessageDto> messageDtos;
+        if (from != null || to != null) {
+            messageDtos = messageService.getMessagesPublishedBetweenFiltered(
+                    topic,
+                    from == null ? 0 : from,
+                    to == null ? Long.MAX_VALUE : to,
+                    numMessages,
+                    producers,
+                    subscriptions,
+                    messageFilter
+            );
+        } else {
+            messageDtos = messageService.getLatestMessagesFiltered(topic, numMessages, producers, subscriptions, messageFilter);
+        }
         return new ResponseEntity<>(new MessagesDto(messageDtos), HttpStatus.OK);
     }
 
+    @GetMapping("/page")
+    @Operation(
+            summary = "Returns one page of messages of a topic, latest message first. Without a cursor the latest page is returned. " +
+                      "Pass the olderCursor or newerCursor of a page together with the matching direction to get the adjacent page."
+    )
+    public ResponseEntity<MessagePageDto> getMessagePage(@RequestParam String topic,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false, defaultValue = "OLDER") MessageService.PageDirection direction,
+                                                         @RequestParam(required = false, defaultValue = "10") Integer pageSize)
+    {
+        if (pageSize <= 0) {
+            throw new BadRequestException.InvalidPageSize("pageSize must be positive, but is %d.".formatted(pageSize));
+        }
+        return new ResponseEntity<>(messageService.getMessagePage(topic, cursor, direction, pageSize), HttpStatus.OK);
+    }
+
+    @GetMapping("/stream")
+    @Operation(
+            summary = "Streams the latest messages of a topic oldest first, each one as soon as it has been read. " +
+                      "Messages are written as newline delimited JSON (format NDJSON) or as server-sent events (format SSE). " +
+                      "The stream ends early once maxBytes have been written."
+    )
+    public ResponseEntity<StreamingResponseBody> streamMessages(@RequestParam String topic,
+                                                                @RequestParam(required = false, defaultValue = "10") Integer numMessages,
+                                                                @RequestParam(required = false, defaultValue = "") List<String> producers,
+                                                                @RequestParam(required = false, defaultValue = "NDJSON") MessageStreamWriter.Format format,
+                                                                @RequestParam(required = false) Long maxBytes)
+    {
+        long byteBudget = maxBytes == null ? streamMaxBytes : Math.min(maxBytes, streamMaxBytes);
+        StreamingResponseBody body = outputStream -> {
+            var writer = new MessageStreamWriter(outputStream, objectMapper, format, byteBudget);
+            messageService.streamLatestMessages(topic, numMessages, producers, writer);
+            writer.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .body(body);
+    }
+
+    @GetMapping("/tail")
+    @Operation(
+            summary = "Pushes the messages arriving on a topic from now on as server-sent events. Clients that can't keep up " +
+                      "miss messages according to the policy (DROP_OLDEST, DROP_NEWEST or SAMPLE) and are told how many " +
+                      "in a 'dropped' event. The stream ends after a few minutes, event sources then reconnect on their own."
+    )
+    public ResponseEntity<ResponseBodyEmitter> tailMessages(@RequestParam String topic,
+                                                            @RequestParam(required = false, defaultValue = "DROP_OLDEST") MessageTailService.TailPolicy policy)
+    {
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(messageTailService.tail(topic, policy));
+    }
+
+    @GetMapping("/export")
+    @Operation(
+            summary = "Exports a range of a topic as file, written while the topic is read. The range is given either by " +
+                      "fromMessageId/toMessageId, by from/to (epoch millis of the publish time) or as the latest numMessages messages. " +
+                      "Formats are gzip compressed newline delimited JSON (NDJSON_GZIP) or, for topics with Avro schema, " +
+                      "an Avro container file (AVRO)."
+    )
+    public ResponseEntity<StreamingResponseBody> exportMessages(@RequestParam String topic,
+                                                                @RequestParam(required = false) Integer numMessages,
+                                                                @RequestParam(required = false) String fromMessageId,
+                                                                @RequestParam(required = false) String toMessageId,
+                                                                @RequestParam(required = false) Long from,
+                                                                @RequestParam(required = false) Long to,
+                                                                @RequestParam(required = false, defaultValue = "NDJSON_GZIP") MessageExportService.ExportFormat format)
+    {
+        var range = new MessageExportService.ExportRange(numMessages, fromMessageId, toMessageId, from, to);
+        var export = messageExportService.prepare(topic, range, format);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(export.getFileName())
+                        .build()
+                        .toString())
+                .body(export::writeTo);
+    }
+
+    @GetMapping("/analytics")
+    @Operation(
+            summary = "Summarizes the latest numMessages messages of a topic, or the ones published between from and to " +
+                      "(epoch millis), without returning them: payload size percentiles, publish rate, messages per producer " +
+                      "and the estimated amount of distinct keys."
+    )
+    public ResponseEntity<MessageAnalyticsDto> analyzeMessages(@RequestParam String topic,
+                                                               @RequestParam(required = false, defaultValue = "10000") Integer numMessages,
+                                                               @RequestParam(required = false) Long from,
+                                                               @RequestParam(required = false) Long to)
+    {
+        return new ResponseEntity<>(messageAnalyticsService.analyze(topic, numMessages, from, to), HttpStatus.OK);
+    }
+
+    @GetMapping("/avro-stats")
+    @Operation(
+            summary = "Decodes the latest numMessages messages of a topic with Avro schema and returns statistics per schema field: " +
+                      "null ratio, min/max/mean of numeric fields, the topK most frequent values of string fields and distinct counts."
+    )
+    public ResponseEntity<AvroFieldStatsDto> getAvroFieldStats(@RequestParam String topic,
+                                                               @RequestParam(required = false, defaultValue = "1000") Integer numMessages,
+                                                               @RequestParam(required = false, defaultValue = "5") Integer topK)
+    {
+        return new ResponseEntity<>(avroFieldStatsService.sample(topic, numMessages, topK), HttpStatus.OK);
+    }
+
+    @GetMapping("/search")
+    @Operation(
+            summary = "Searches the payloads of the latest numMessages messages of a topic and returns only the matching ones, oldest first. " +
+                      "Mode SUBSTRING and REGEX match the whole decoded payload, mode FIELD compares the value of a JSON field (e.g. ship.name) with the query. " +
+                      "If from and/or to (epoch millis) are given, the messages published in that window are searched instead. " +
+                      "The search stops after maxMatches matches; pass its resumeCursor as cursor to continue."
+    )
+    public ResponseEntity<MessageSearchResultDto> searchMessages(@RequestParam String topic,
+                                                                 @RequestParam String query,
+                                                                 @RequestParam(required = false, defaultValue = "SUBSTRING") PayloadMatcher.Mode mode,
+                                                                 @RequestParam(required = false) String field,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false, defaultValue = "1000") Integer numMessages,
+                                                                 @RequestParam(required = false, defaultValue = "100") Integer maxMatches,
+                                                                 @RequestParam(required = false) Long from,
+                                                                 @RequestParam(required = false) Long to)
+    {
+        PayloadMatcher matcher = PayloadMatcher.create(mode, query, field, searchRegexTimeoutMillis, objectMapper);
+        MessageSearchResultDto result;
+        if (from != null || to != null) {
+            result = messageSearchService.searchPublishedBetween(
+                    topic,
+                    matcher,
+                    from == null ? 0 : from,
+                    to == null ? Long.MAX_VALUE : to,
+                    numMessages,
+                    maxMatches
+            );
+        } else {
+            result = messageSearchService.searchLatest(topic, matcher, cursor, numMessages, maxMatches);
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/latest-values")
+    @Operation(
+            summary = "Returns the latest message per key of a (compacted) topic, one page at a time. Each request first reads " +
+                      "only the messages published since the previous one, unless refresh is false. " +
+                      "Sorted ascending by key or latest published first."
+    )
+    public ResponseEntity<LatestValuesDto> getLatestValues(@RequestParam String topic,
+                                                           @RequestParam(required = false, defaultValue = "KEY") LatestValueCache.LatestValueOrder order,
+                                                           @RequestParam(required = false, defaultValue = "0") Integer page,
+                                                           @RequestParam(required = false, defaultValue = "50") Integer pageSize,
+                                                           @RequestParam(required = false, defaultValue = "true") Boolean refresh)
+    {
+        if (page < 0) {
+            throw new BadRequestException.InvalidPage("page must not be negative, but is %d.".formatted(page));
+        }
+        if (pageSize <= 0) {
+            throw new BadRequestException.InvalidPageSize("pageSize must be positive, but is %d.".formatted(pageSize));
+        }
+        return new ResponseEntity<>(latestValueCache.getLatestValues(topic, order, page, pageSize, refresh), HttpStatus.OK);
+    }
+
+    @GetMapping("/{messageId}")
+    @Operation(summary = "Returns a single message of a topic with its whole payload, e.g. if a listing only returned a preview of it.")
+    public ResponseEntity<MessageDto> getMessage(@PathVariable String messageId, @RequestParam String topic) {
+        return messageLookupService.getMessage(topic, messageId)
+                .map(message -> new ResponseEntity<>(message, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
 }
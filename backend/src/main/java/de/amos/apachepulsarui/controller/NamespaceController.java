@@ -11,6 +11,7 @@ import de.amos.apachepulsarui.dto.NamespaceDto;
 import de.amos.apachepulsarui.dto.NamespacesDto;
 import de.amos.apachepulsarui.service.NamespaceService;
 import de.amos.apachepulsarui.service.TenantService;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +29,7 @@ public class NamespaceController {
 
     private final NamespaceService namespaceService;
     private final TenantService tenantService;
+    private final TopologySnapshot topologySnapshot;
 
     @GetMapping("/all")
     public ResponseEntity<NamespacesDto> getAll(@RequestParam(required = false, defaultValue = "") List<String> tenants,
@@ -45,7 +47,7 @@ public class NamespaceController {
     }
 
     private ResponseEntity<NamespacesDto> wrapInEntity(List<NamespaceDto> namespaceDtos) {
-        return new ResponseEntity<>(new NamespacesDto(namespaceDtos), HttpStatus.OK);
+        return new ResponseEntity<>(new NamespacesDto(namespaceDtos), TopologyHeaders.of(topologySnapshot), HttpStatus.OK);
     }
 
     private List<NamespaceDto> getAllForTenants(List<String> tenants) {
@@ -9,6 +9,7 @@ package de.amos.apachepulsarui.controller;
 import de.amos.apachepulsarui.dto.TenantDetailDto;
 import de.amos.apachepulsarui.dto.TenantsDto;
 import de.amos.apachepulsarui.service.TenantService;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,6 +26,7 @@ import java.util.List;
 public class TenantController {
 
     private final TenantService tenantService;
+    private final TopologySnapshot topologySnapshot;
 
     @GetMapping()
     public ResponseEntity<TenantDetailDto> getTenantDetails(@RequestParam String tenantName) {
@@ -33,7 +35,8 @@ public class TenantController {
 
     @GetMapping("/all")
     public ResponseEntity<TenantsDto> getAllFiltered(@RequestParam (required = false, defaultValue = "") List<String> tenants) {
-        return new ResponseEntity<>(new TenantsDto(tenantService.getAllFiltered(tenants)), HttpStatus.OK);
+        TenantsDto tenantsDto = new TenantsDto(tenantService.getAllFiltered(tenants));
+        return new ResponseEntity<>(tenantsDto, TopologyHeaders.of(topologySnapshot), HttpStatus.OK);
     }
 
 }
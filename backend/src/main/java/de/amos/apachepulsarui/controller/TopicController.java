@@ -15,6 +15,7 @@ import de.amos.apachepulsarui.dto.TopicsDto;
 import de.amos.apachepulsarui.service.NamespaceService;
 import de.amos.apachepulsarui.service.TenantService;
 import de.amos.apachepulsarui.service.TopicService;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -38,6 +39,8 @@ public class TopicController {
 
     private final NamespaceService namespaceService;
 
+    private final TopologySnapshot topologySnapshot;
+
     @GetMapping("/all")
     public ResponseEntity<TopicsDto> getAll(@RequestParam(required = false, defaultValue = "") List<String> tenants,
                                             @RequestParam(required = false, defaultValue = "") List<String> namespaces,
@@ -87,7 +90,7 @@ public class TopicController {
     }
 
     private ResponseEntity<TopicsDto> wrapInEntity(List<TopicDto> topicDtos) {
-        return new ResponseEntity<>(new TopicsDto(topicDtos), HttpStatus.OK);
+        return new ResponseEntity<>(new TopicsDto(topicDtos), TopologyHeaders.of(topologySnapshot), HttpStatus.OK);
     }
 
     private List<TopicDto> getAllForTopics(List<String> topics) {
@@ -0,0 +1,20 @@
+package de.amos.apachepulsarui.controller;
+
+import de.amos.apachepulsarui.service.TopologySnapshot;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Headers of listings read from the topology snapshot, telling clients how current the listing is.
+ */
+final class TopologyHeaders {
+
+    private TopologyHeaders() {
+    }
+
+    static HttpHeaders of(TopologySnapshot topologySnapshot) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TopologySnapshot.AGE_HEADER, String.valueOf(topologySnapshot.getAgeSeconds()));
+        return headers;
+    }
+
+}
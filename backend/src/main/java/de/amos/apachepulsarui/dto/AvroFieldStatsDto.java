@@ -0,0 +1,46 @@
+package de.amos.apachepulsarui.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Value statistics per field of the Avro schema of a topic, taken over a sample of its latest messages. Fields of
+ * nested records are listed with their dotted path.
+ */
+@Data
+@AllArgsConstructor
+public class AvroFieldStatsDto {
+
+    private int sampledMessages;
+    /**
+     * Messages that could not be decoded with the schema and are not part of the statistics.
+     */
+    private int undecodableMessages;
+    private List<FieldStats> fields;
+
+    /**
+     * Min, max and mean are only set for numeric and boolean fields (true counting as 1), top values only for string
+     * and enum fields. Distinct counts are exact and left out for fields of other types.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class FieldStats {
+        private String path;
+        private String type;
+        private double nullRatio;
+        private Double min;
+        private Double max;
+        private Double mean;
+        private Long distinct;
+        private List<ValueCount> topValues;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ValueCount {
+        private String value;
+        private long count;
+    }
+}
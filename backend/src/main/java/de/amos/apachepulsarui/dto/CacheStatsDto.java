@@ -0,0 +1,31 @@
+package de.amos.apachepulsarui.dto;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class CacheStatsDto {
+
+    String name;
+    long estimatedSize;
+    long hitCount;
+    long missCount;
+    double hitRate;
+    long evictionCount;
+
+    public static CacheStatsDto create(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return CacheStatsDto.builder()
+                .name(name)
+                .estimatedSize(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+}
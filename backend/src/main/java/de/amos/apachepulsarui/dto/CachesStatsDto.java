@@ -0,0 +1,13 @@
+package de.amos.apachepulsarui.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CachesStatsDto {
+
+    private List<CacheStatsDto> caches;
+}
@@ -0,0 +1,19 @@
+package de.amos.apachepulsarui.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of the latest message per key of a topic. Complete is false if the topic holds more keys than are kept,
+ * in which case the keys updated least recently are missing.
+ */
+@Data
+@AllArgsConstructor
+public class LatestValuesDto {
+
+    private List<MessageDto> messages;
+    private int totalKeys;
+    private boolean complete;
+}
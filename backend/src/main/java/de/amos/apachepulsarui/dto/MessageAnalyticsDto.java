@@ -0,0 +1,55 @@
+package de.amos.apachepulsarui.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Summary of a range of messages of a topic. Payload size percentiles are accurate to about 1%, the amount of
+ * distinct keys is an estimate with a standard error below 1%.
+ */
+@Data
+@AllArgsConstructor
+public class MessageAnalyticsDto {
+
+    private long messages;
+    private PayloadSizes payloadSizes;
+    private PublishRate publishRate;
+    /**
+     * Messages per producer, busiest producer first.
+     */
+    private Map<String, Long> messagesPerProducer;
+    private long messagesWithKey;
+    private long estimatedDistinctKeys;
+
+    @Data
+    @AllArgsConstructor
+    public static class PayloadSizes {
+        private long totalBytes;
+        private int min;
+        private int max;
+        private double mean;
+        private int p50;
+        private int p90;
+        private int p99;
+        private int p999;
+    }
+
+    /**
+     * Messages per second over the time between the first and the last message of the range.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class PublishRate {
+        private Long firstPublishTime;
+        private Long lastPublishTime;
+        private double meanPerSecond;
+        private long peakPerSecond;
+        /**
+         * Epoch millis of the start of the busiest second.
+         */
+        private Long peakSecond;
+        private int activeSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package de.amos.apachepulsarui.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of messages, latest message first. The cursors continue browsing towards older or newer messages and are
+ * null once there is nothing more to browse in that direction.
+ */
+@Data
+@AllArgsConstructor
+public class MessagePageDto {
+
+    private List<MessageDto> messages;
+    private String olderCursor;
+    private String newerCursor;
+}
@@ -0,0 +1,22 @@
+package de.amos.apachepulsarui.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The messages matching a search, in the order they were scanned (oldest first). Complete is false if the search
+ * stopped at the maximum amount of matches before the end of the scanned range; the resume cursor then continues the
+ * search right after the last scanned message.
+ */
+@Data
+@AllArgsConstructor
+public class MessageSearchResultDto {
+
+    private List<MessageDto> messages;
+    private long scanned;
+    private long matched;
+    private boolean complete;
+    private String resumeCursor;
+}
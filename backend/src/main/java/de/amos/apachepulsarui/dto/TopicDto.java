@@ -12,6 +12,7 @@ import org.apache.pulsar.common.policies.data.PublisherStats;
 import org.apache.pulsar.common.policies.data.TopicStats;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -25,6 +26,10 @@ public class TopicDto {
     private Set<String> subscriptions;
     private List<String> producers;
     private long messagesSendToTopic;
+    /**
+     * Whether the stats of the topic did not arrive in time, so subscriptions, producers and message counts are missing.
+     */
+    private boolean statsTimedOut;
 
     public static TopicDto create(String completeTopicName, TopicStats topicStats) {
         Set<String> subscriptions = topicStats.getSubscriptions().keySet();
@@ -41,6 +46,18 @@ public class TopicDto {
                 .build();
     }
 
+    public static TopicDto createWithoutStats(String completeTopicName) {
+        TopicName topicName = TopicName.get(completeTopicName);
+        return TopicDto.builder()
+                .name(topicName.toString())
+                .namespace(topicName.getNamespace())
+                .tenant(topicName.getTenant())
+                .producers(Collections.emptyList())
+                .subscriptions(Collections.emptySet())
+                .statsTimedOut(true)
+                .build();
+    }
+
     private static List<String> getProducers(TopicStats topicStats) {
         List<PublisherStats> publisherStats = new ArrayList<>(topicStats.getPublishers());
         return publisherStats.stream()
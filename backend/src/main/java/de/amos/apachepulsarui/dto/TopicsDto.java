@@ -15,4 +15,12 @@ import java.util.List;
 public class TopicsDto {
 
     private List<TopicDto> topics;
+    /**
+     * Whether the stats of all topics arrived in time.
+     */
+    private boolean complete;
+
+    public TopicsDto(List<TopicDto> topics) {
+        this(topics, topics.stream().noneMatch(TopicDto::isStatsTimedOut));
+    }
 }
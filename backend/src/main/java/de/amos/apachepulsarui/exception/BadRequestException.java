@@ -37,6 +37,96 @@ public class BadRequestException extends RuntimeException {
         }
     }
 
+    public static class InvalidCursor extends BadRequestException {
+        public InvalidCursor() {
+            super(
+                    "Cursor invalid.",
+                    "Use a cursor exactly as returned by a previous page of messages."
+            );
+        }
+    }
+
+    public static class InvalidMessageId extends BadRequestException {
+        public InvalidMessageId() {
+            super(
+                    "Message id invalid.",
+                    "Use a message id exactly as returned with the message, e.g. 42:7:-1."
+            );
+        }
+    }
+
+    public static class InvalidMessageFilter extends BadRequestException {
+        public InvalidMessageFilter(String message) {
+            super(
+                    message,
+                    "Filter properties as name:value, e.g. property=origin:earth."
+            );
+        }
+    }
+
+    public static class UnsupportedExportFormat extends BadRequestException {
+        public UnsupportedExportFormat(String message) {
+            super(
+                    message,
+                    "Only topics with an Avro schema can be exported as Avro container file, export them as NDJSON_GZIP instead."
+            );
+        }
+    }
+
+    public static class NoAvroSchema extends BadRequestException {
+        public NoAvroSchema(String message) {
+            super(
+                    message,
+                    "Field statistics are only available for topics with an Avro schema."
+            );
+        }
+    }
+
+    public static class InvalidSearchQuery extends BadRequestException {
+        public InvalidSearchQuery(String message) {
+            super(
+                    message,
+                    "Search with mode SUBSTRING or REGEX for a query, or with mode FIELD for a field path (e.g. ship.name) having the query as value."
+            );
+        }
+    }
+
+    public static class InvalidSearchLimit extends BadRequestException {
+        public InvalidSearchLimit(String message) {
+            super(
+                    message,
+                    "Pass a maxMatches of at least 1."
+            );
+        }
+    }
+
+    public static class InvalidPageSize extends BadRequestException {
+        public InvalidPageSize(String message) {
+            super(
+                    message,
+                    "Pass a pageSize of at least 1."
+            );
+        }
+    }
+
+    public static class TooManyTailedTopics extends BadRequestException {
+        public TooManyTailedTopics(int maxTopics) {
+            super(
+                    "At most %d topics can be tailed at the same time.".formatted(maxTopics),
+                    "Tail a topic that is tailed already or try again once other tails have ended."
+            );
+        }
+    }
+
+    public static class InvalidPage extends BadRequestException {
+        public InvalidPage(String message) {
+            super(
+                    message,
+                    "Pages are counted from 0."
+            );
+        }
+    }
+
     public BadRequestExceptionClientInfo toClientInfo() {
         return new BadRequestExceptionClientInfo(message, hint);
     }
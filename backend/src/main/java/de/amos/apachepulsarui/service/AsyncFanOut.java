@@ -0,0 +1,124 @@
+package de.amos.apachepulsarui.service;
+
+import org.apache.pulsar.client.admin.PulsarAdminException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Issues asynchronous admin calls for a batch of inputs while keeping the number of requests in flight bounded.
+ */
+final class AsyncFanOut {
+
+    private AsyncFanOut() {
+    }
+
+    /**
+     * @param inputs      The inputs to issue a call for.
+     * @param maxInFlight The maximum number of calls that may be outstanding at the same time.
+     * @param call        The asynchronous call to issue per input.
+     * @return The results in the order of the inputs, independent of the order the calls completed in.
+     * @throws PulsarAdminException The first admin error any of the calls failed with.
+     */
+    static <T, R> List<R> collectOrdered(List<T> inputs,
+                                         int maxInFlight,
+                                         Function<T, CompletableFuture<R>> call) throws PulsarAdminException {
+        return collectOrdered(inputs, maxInFlight, 0, call);
+    }
+
+    /**
+     * Like {@link #collectOrdered(List, int, Function)}, but gives up on the calls that did not complete within the
+     * timeout. Inputs that have not been issued by then are not issued at all.
+     *
+     * @param timeoutMillis How long to wait for all calls to complete, 0 to wait as long as it takes.
+     * @return The results in the order of the inputs, null for every call that did not complete in time.
+     * @throws PulsarAdminException The first admin error any of the completed calls failed with.
+     */
+    static <T, R> List<R> collectOrdered(List<T> inputs,
+                                         int maxInFlight,
+                                         long timeoutMillis,
+                                         Function<T, CompletableFuture<R>> call) throws PulsarAdminException {
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        Semaphore permits = new Semaphore(Math.max(1, maxInFlight));
+        List<CompletableFuture<R>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            if (!acquire(permits, deadline)) {
+                break;
+            }
+            CompletableFuture<R> issued = issue(call, input);
+            // the issued future itself is kept, so cancelling it on timeout reaches the request
+            issued.whenComplete((result, error) -> permits.release());
+            futures.add(issued);
+        }
+        awaitAll(futures, deadline);
+
+        List<R> results = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            CompletableFuture<R> future = i < futures.size() ? futures.get(i) : null;
+            if (future != null && future.isDone()) {
+                results.add(join(future));
+            } else {
+                if (future != null) {
+                    future.cancel(true);
+                }
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    private static boolean acquire(Semaphore permits, long deadline) {
+        if (deadline == 0) {
+            permits.acquireUninterruptibly();
+            return true;
+        }
+        try {
+            return permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static <R> void awaitAll(List<CompletableFuture<R>> futures, long deadline) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+        if (deadline == 0) {
+            all.exceptionally(error -> null).join();
+            return;
+        }
+        try {
+            all.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // calls that failed or did not complete are handled one by one
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <R> R join(CompletableFuture<R> future) throws PulsarAdminException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof PulsarAdminException adminException) {
+                throw adminException;
+            }
+            throw e;
+        }
+    }
+
+    private static <T, R> CompletableFuture<R> issue(Function<T, CompletableFuture<R>> call, T input) {
+        try {
+            return call.apply(input);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+}
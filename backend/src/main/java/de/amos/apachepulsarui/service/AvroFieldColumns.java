@@ -0,0 +1,219 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.dto.AvroFieldStatsDto;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The values of a sample of Avro records, stored column by column: one primitive array per numeric field and one
+ * array per string field, each with a slot per record. Records can be added from several threads at once as long as
+ * every thread writes to its own rows.
+ */
+final class AvroFieldColumns {
+
+    private final List<Column> columns = new ArrayList<>();
+    private final boolean[] undecodable;
+    private final int rows;
+
+    AvroFieldColumns(Schema schema, int rows) {
+        this.rows = rows;
+        this.undecodable = new boolean[rows];
+        flatten(schema, "", new int[0], false);
+    }
+
+    void set(int row, GenericRecord record) {
+        for (Column column : columns) {
+            Object value = column.extract(record);
+            if (value == null) {
+                column.nulls[row] = true;
+                continue;
+            }
+            switch (column.kind) {
+                case NUMERIC -> column.numbers[row] = value instanceof Boolean bool
+                        ? (bool ? 1 : 0)
+                        : ((Number) value).doubleValue();
+                case STRING -> column.strings[row] = value.toString();
+                case OTHER -> {
+                    // only nulls are counted
+                }
+            }
+        }
+    }
+
+    void setUndecodable(int row) {
+        undecodable[row] = true;
+    }
+
+    int countUndecodable() {
+        int count = 0;
+        for (boolean u : undecodable) {
+            if (u) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param topK The amount of most frequent values to report per string field.
+     */
+    List<AvroFieldStatsDto.FieldStats> summarize(int topK) {
+        int decoded = rows - countUndecodable();
+        List<AvroFieldStatsDto.FieldStats> stats = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            stats.add(column.summarize(decoded, topK));
+        }
+        return stats;
+    }
+
+    private void flatten(Schema schema, String path, int[] positions, boolean nullable) {
+        switch (schema.getType()) {
+            case RECORD -> {
+                for (Schema.Field field : schema.getFields()) {
+                    int[] fieldPositions = Arrays.copyOf(positions, positions.length + 1);
+                    fieldPositions[positions.length] = field.pos();
+                    String fieldPath = path.isEmpty() ? field.name() : path + "." + field.name();
+                    flatten(field.schema(), fieldPath, fieldPositions, nullable);
+                }
+            }
+            case UNION -> {
+                List<Schema> branches = schema.getTypes().stream()
+                        .filter(branch -> branch.getType() != Schema.Type.NULL)
+                        .toList();
+                if (branches.size() == 1) {
+                    flatten(branches.get(0), path, positions, true);
+                } else {
+                    columns.add(new Column(path, "union", positions, Kind.OTHER, rows));
+                }
+            }
+            case INT, LONG, FLOAT, DOUBLE, BOOLEAN ->
+                    columns.add(new Column(path, typeName(schema, nullable), positions, Kind.NUMERIC, rows));
+            case STRING, ENUM ->
+                    columns.add(new Column(path, typeName(schema, nullable), positions, Kind.STRING, rows));
+            default -> columns.add(new Column(path, typeName(schema, nullable), positions, Kind.OTHER, rows));
+        }
+    }
+
+    private static String typeName(Schema schema, boolean nullable) {
+        String name = schema.getLogicalType() != null ? schema.getLogicalType().getName() : schema.getType().getName();
+        return nullable ? name + "?" : name;
+    }
+
+    private enum Kind {
+        NUMERIC,
+        STRING,
+        OTHER
+    }
+
+    private class Column {
+
+        private final String path;
+        private final String type;
+        private final int[] positions;
+        private final Kind kind;
+        private final boolean[] nulls;
+        private final double[] numbers;
+        private final String[] strings;
+
+        private Column(String path, String type, int[] positions, Kind kind, int rows) {
+            this.path = path;
+            this.type = type;
+            this.positions = positions;
+            this.kind = kind;
+            this.nulls = new boolean[rows];
+            this.numbers = kind == Kind.NUMERIC ? new double[rows] : null;
+            this.strings = kind == Kind.STRING ? new String[rows] : null;
+        }
+
+        /**
+         * Walks down nested records, a null record on the way makes the field null as well.
+         */
+        private Object extract(GenericRecord record) {
+            Object value = record;
+            for (int position : positions) {
+                if (!(value instanceof GenericRecord nested)) {
+                    return null;
+                }
+                value = nested.get(position);
+            }
+            return value;
+        }
+
+        private AvroFieldStatsDto.FieldStats summarize(int decoded, int topK) {
+            int nullCount = 0;
+            for (int row = 0; row < rows; row++) {
+                if (!undecodable[row] && nulls[row]) {
+                    nullCount++;
+                }
+            }
+            double nullRatio = decoded == 0 ? 0 : (double) nullCount / decoded;
+            return switch (kind) {
+                case NUMERIC -> summarizeNumbers(nullRatio);
+                case STRING -> summarizeStrings(nullRatio, topK);
+                case OTHER -> new AvroFieldStatsDto.FieldStats(path, type, nullRatio, null, null, null, null, null);
+            };
+        }
+
+        private AvroFieldStatsDto.FieldStats summarizeNumbers(double nullRatio) {
+            double[] present = new double[rows];
+            int size = 0;
+            double sum = 0;
+            for (int row = 0; row < rows; row++) {
+                if (!undecodable[row] && !nulls[row]) {
+                    present[size++] = numbers[row];
+                    sum += numbers[row];
+                }
+            }
+            if (size == 0) {
+                return new AvroFieldStatsDto.FieldStats(path, type, nullRatio, null, null, null, 0L, null);
+            }
+            // sorting the column yields min, max and the distinct values in one go
+            Arrays.sort(present, 0, size);
+            long distinct = 1;
+            for (int i = 1; i < size; i++) {
+                if (Double.compare(present[i], present[i - 1]) != 0) {
+                    distinct++;
+                }
+            }
+            return new AvroFieldStatsDto.FieldStats(path, type, nullRatio,
+                    present[0], present[size - 1], sum / size, distinct, null);
+        }
+
+        private AvroFieldStatsDto.FieldStats summarizeStrings(double nullRatio, int topK) {
+            Map<String, long[]> counts = new HashMap<>();
+            for (int row = 0; row < rows; row++) {
+                if (!undecodable[row] && !nulls[row]) {
+                    counts.computeIfAbsent(strings[row], s -> new long[1])[0]++;
+                }
+            }
+            Comparator<Map.Entry<String, long[]>> byCount = Comparator.comparingLong(e -> e.getValue()[0]);
+            PriorityQueue<Map.Entry<String, long[]>> top = new PriorityQueue<>(byCount);
+            for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+                top.add(entry);
+                if (top.size() > topK) {
+                    top.poll();
+                }
+            }
+            List<AvroFieldStatsDto.ValueCount> topValues = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Map.Entry<String, long[]> entry = top.poll();
+                topValues.add(new AvroFieldStatsDto.ValueCount(entry.getKey(), entry.getValue()[0]));
+            }
+            // most frequent value first
+            Collections.reverse(topValues);
+            return new AvroFieldStatsDto.FieldStats(path, type, nullRatio,
+                    null, null, null, (long) counts.size(), topValues);
+        }
+
+    }
+
+}
@@ -0,0 +1,190 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.dto.AvroFieldStatsDto;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import de.amos.apachepulsarui.service.decoder.SchemaVersionCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.common.schema.SchemaInfoWithVersion;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Samples the latest messages of a topic with Avro schema and computes value statistics per field. The sample is split
+ * into one slice per worker thread; every worker decodes its slice straight into its rows of the shared columns, so
+ * no records are kept and nothing has to be merged afterwards.
+ */
+@Service
+@Slf4j
+public class AvroFieldStatsService {
+
+    private final PulsarAdmin pulsarAdmin;
+    private final PartitionedMessageBrowser partitionedMessageBrowser;
+    private final SchemaVersionCache schemaVersionCache;
+    private final int maxMessages;
+    private final int workers;
+    private final ExecutorService decoders;
+
+    public AvroFieldStatsService(PulsarAdmin pulsarAdmin,
+                                 PartitionedMessageBrowser partitionedMessageBrowser,
+                                 SchemaVersionCache schemaVersionCache,
+                                 @Value("${messages.avro-stats.max-messages}") int maxMessages,
+                                 @Value("${messages.avro-stats.threads}") int threads) {
+        this.pulsarAdmin = pulsarAdmin;
+        this.partitionedMessageBrowser = partitionedMessageBrowser;
+        this.schemaVersionCache = schemaVersionCache;
+        this.maxMessages = maxMessages;
+        this.workers = Math.max(1, threads);
+        this.decoders = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("avro-stats-"));
+    }
+
+    /**
+     * @param numMessages The amount of latest messages to sample.
+     * @param topK        The amount of most frequent values to report per string field.
+     * @throws BadRequestException.NoAvroSchema If the topic has no Avro schema.
+     */
+    public AvroFieldStatsDto sample(String topic, int numMessages, int topK) {
+        SchemaInfoWithVersion latest = getAvroSchema(topic);
+        Schema schema = new Schema.Parser().parse(latest.getSchemaInfo().getSchemaDefinition());
+        List<Message<byte[]>> messages = partitionedMessageBrowser.readLatest(topic, Math.min(numMessages, maxMessages));
+        Map<Long, Optional<Schema>> writerSchemas = resolveWriterSchemas(topic, messages, latest.getVersion());
+
+        AvroFieldColumns columns = new AvroFieldColumns(schema, messages.size());
+        int sliceSize = Math.max(1, (messages.size() + workers - 1) / workers);
+        List<CompletableFuture<Void>> slices = new ArrayList<>(workers);
+        for (int start = 0; start < messages.size(); start += sliceSize) {
+            int from = start;
+            int to = Math.min(start + sliceSize, messages.size());
+            slices.add(CompletableFuture.runAsync(
+                    () -> new SliceDecoder(topic, schema, latest.getVersion(), writerSchemas).decode(messages, from, to, columns),
+                    decoders));
+        }
+        CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new)).join();
+
+        return new AvroFieldStatsDto(messages.size(), columns.countUndecodable(), columns.summarize(topK));
+    }
+
+    /**
+     * Fetches the writer schemas of all older versions in the sample at once, before any slice is decoded, so the
+     * workers never wait for the admin API. Versions that can't be fetched or parsed map to an empty schema and their
+     * messages count as undecodable.
+     */
+    private Map<Long, Optional<Schema>> resolveWriterSchemas(String topic, List<Message<byte[]>> messages, long latestVersion) {
+        Map<Long, CompletableFuture<Optional<Schema>>> pending = new LinkedHashMap<>();
+        messages.stream()
+                .map(MessageDecoder::schemaVersionOf)
+                .filter(Objects::nonNull)
+                .filter(version -> version != latestVersion)
+                .distinct()
+                .forEach(version -> pending.put(version, schemaVersionCache.getSchemaInfo(topic, version)
+                        .thenApply(writerSchema -> Optional.of(new Schema.Parser().parse(writerSchema.getSchemaDefinition())))
+                        .exceptionally(e -> {
+                            log.debug("Could not fetch version {} of the schema of topic '{}'", version, topic, e);
+                            return Optional.empty();
+                        })));
+
+        Map<Long, Optional<Schema>> writerSchemas = new HashMap<>();
+        pending.forEach((version, writerSchema) -> writerSchemas.put(version, writerSchema.join()));
+        return writerSchemas;
+    }
+
+    private SchemaInfoWithVersion getAvroSchema(String topic) {
+        try {
+            SchemaInfoWithVersion schema = pulsarAdmin.schemas().getSchemaInfoWithVersion(topic);
+            if (schema.getSchemaInfo().getType() != SchemaType.AVRO) {
+                throw new BadRequestException.NoAvroSchema(
+                        "Topic '%s' has a %s schema.".formatted(topic, schema.getSchemaInfo().getType()));
+            }
+            return schema;
+        } catch (PulsarAdminException.NotFoundException e) {
+            throw new BadRequestException.NoAvroSchema("Topic '%s' has no schema.".formatted(topic));
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not fetch the schema of topic '%s'".formatted(topic), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        decoders.shutdownNow();
+    }
+
+    /**
+     * Decodes one slice of the sample on a single thread, reusing its decoder and record across messages. Messages
+     * written with older schema versions are resolved to the latest schema, with writer schemas fetched up front.
+     */
+    private class SliceDecoder {
+
+        private final String topic;
+        private final Schema schema;
+        private final long latestVersion;
+        private final Map<Long, Optional<Schema>> writerSchemas;
+        private final Map<Long, GenericDatumReader<GenericRecord>> readers = new HashMap<>();
+        private BinaryDecoder binaryDecoder;
+        private GenericRecord reused;
+
+        private SliceDecoder(String topic, Schema schema, long latestVersion, Map<Long, Optional<Schema>> writerSchemas) {
+            this.topic = topic;
+            this.schema = schema;
+            this.latestVersion = latestVersion;
+            this.writerSchemas = writerSchemas;
+        }
+
+        private void decode(List<Message<byte[]>> messages, int from, int to, AvroFieldColumns columns) {
+            for (int row = from; row < to; row++) {
+                Message<byte[]> message = messages.get(row);
+                GenericDatumReader<GenericRecord> reader = readerFor(MessageDecoder.schemaVersionOf(message));
+                if (reader == null) {
+                    columns.setUndecodable(row);
+                    continue;
+                }
+                try {
+                    binaryDecoder = DecoderFactory.get().binaryDecoder(message.getData(), binaryDecoder);
+                    reused = reader.read(reused, binaryDecoder);
+                    columns.set(row, reused);
+                } catch (Exception e) {
+                    log.debug("Could not decode message {} of topic '{}' for field statistics", message.getMessageId(), topic, e);
+                    columns.setUndecodable(row);
+                }
+            }
+        }
+
+        /**
+         * @return The reader for records of the given version, null if its writer schema could not be resolved.
+         */
+        private GenericDatumReader<GenericRecord> readerFor(Long version) {
+            long writerVersion = version == null ? latestVersion : version;
+            if (writerVersion == latestVersion) {
+                return readers.computeIfAbsent(writerVersion, v -> new GenericDatumReader<>(schema));
+            }
+            return writerSchemas.getOrDefault(writerVersion, Optional.empty())
+                    .map(writerSchema -> readers.computeIfAbsent(writerVersion,
+                            v -> new GenericDatumReader<>(writerSchema, schema)))
+                    .orElse(null);
+        }
+
+    }
+
+}
@@ -3,6 +3,8 @@ package de.amos.apachepulsarui.service;
 import de.amos.apachepulsarui.dto.ClusterDetailDto;
 import de.amos.apachepulsarui.dto.ClusterDto;
 import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.Topology.ClusterNode;
+import de.amos.apachepulsarui.service.Topology.TenantNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.admin.PulsarAdmin;
@@ -12,7 +14,6 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Set;
 
 @Service
 @Slf4j
@@ -20,19 +21,12 @@ import java.util.Set;
 public class ClusterService {
 
     private final PulsarAdmin pulsarAdmin;
-    private final TenantService tenantService;
-    private final NamespaceService namespaceService;
+    private final TopologySnapshot topologySnapshot;
 
-    @Cacheable("cluster.allNames")
     public List<ClusterDto> getAllNames() {
-        try {
-            return pulsarAdmin.clusters().getClusters().stream()
-                    .map(ClusterDto::create)
-                    .map(this::enrichWithCardDetails)
-                    .toList();
-        } catch (PulsarAdminException e) {
-            throw new PulsarApiException("Could not fetch list a list of all clusters", e);
-        }
+        return topologySnapshot.get().getClusters().stream()
+                .map(ClusterService::toClusterDto)
+                .toList();
     }
 
     @Cacheable("cluster.detail")
@@ -66,29 +60,16 @@ public class ClusterService {
     }
 
     private List<String> getTenantsAllowedForCluster(String clusterName) throws PulsarApiException {
-        return tenantService.getAllNames().stream()
-                .filter(tenantName -> {
-                    try {
-                        Set<String> allowedClusters = pulsarAdmin.tenants()
-                                .getTenantInfo(tenantName)
-                                .getAllowedClusters();
-                        return allowedClusters.contains(clusterName);
-                    } catch (PulsarAdminException e) {
-                        throw new PulsarApiException(
-                                "Could not fetch tenants allowed for cluster '%s'".formatted(clusterName), e
-                        );
-                    }
-                })
+        return topologySnapshot.get().getTenants().stream()
+                .filter(tenant -> tenant.isAllowedFor(clusterName))
+                .map(TenantNode::name)
                 .toList();
     }
 
-    private ClusterDto enrichWithCardDetails(ClusterDto clusterDto) {
-        List<String> tenants = getTenantsAllowedForCluster(clusterDto.getName());
-        long numberOfNamespaces = tenants.stream()
-                .mapToLong(t -> namespaceService.getAllOfTenant(t).size())
-                .sum();
-        clusterDto.setNumberOfTenants(tenants.size());
-        clusterDto.setNumberOfNamespaces(numberOfNamespaces);
+    private static ClusterDto toClusterDto(ClusterNode cluster) {
+        ClusterDto clusterDto = ClusterDto.create(cluster.name());
+        clusterDto.setNumberOfTenants(cluster.numberOfTenants());
+        clusterDto.setNumberOfNamespaces(cluster.numberOfNamespaces());
         return clusterDto;
     }
 
@@ -0,0 +1,56 @@
+package de.amos.apachepulsarui.service;
+
+/**
+ * Lets a regular expression give up on a text once a deadline has passed. The matcher reads the text through this
+ * sequence, which checks the deadline every few thousand characters read. Catastrophic backtracking reads the same
+ * characters over and over, so it runs into the deadline as well.
+ */
+final class DeadlineCharSequence implements CharSequence {
+
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final CharSequence text;
+    private final long deadlineNanos;
+    private int reads;
+
+    /**
+     * @param deadlineNanos The {@link System#nanoTime()} after which reading the text fails.
+     */
+    DeadlineCharSequence(CharSequence text, long deadlineNanos) {
+        this.text = text;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++reads % CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos > 0) {
+            throw new DeadlineExceeded();
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new DeadlineCharSequence(text.subSequence(start, end), deadlineNanos);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    static class DeadlineExceeded extends RuntimeException {
+
+        private DeadlineExceeded() {
+            // thrown per payload, a stack trace would only cost time
+            super("Deadline exceeded", null, false, false);
+        }
+
+    }
+
+}
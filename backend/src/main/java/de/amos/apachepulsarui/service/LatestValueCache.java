@@ -0,0 +1,300 @@
+package de.amos.apachepulsarui.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import de.amos.apachepulsarui.dto.LatestValuesDto;
+import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.api.Reader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the latest message per key of compacted topics. The topic is read through a compacted reader, which skips
+ * everything compaction superseded already, and the reader stays open between requests: a refresh only reads the
+ * entries published since the previous one. Empty messages are tombstones and remove their key.
+ * <p>
+ * Only the previews of the messages are kept, and every topic is limited by the amount of keys as well as by their
+ * size, so the memory of all tables is bounded by the amount of topics times the size limit.
+ */
+@Component
+@Slf4j
+public class LatestValueCache {
+
+    public static final String CACHE_NAME = "messages.latestValues";
+
+    private static final String SUBSCRIPTION_ROLE_PREFIX = "pulsar-ui-latest-values";
+
+    private final PulsarClient pulsarClient;
+    private final MessageDecoder messageDecoder;
+    private final int maxKeys;
+    private final long maxBytes;
+    private final int readTimeoutMillis;
+    private final Cache<String, KeyTable> tables;
+
+    @SuppressWarnings("unchecked")
+    public LatestValueCache(PulsarClient pulsarClient,
+                            MessageDecoder messageDecoder,
+                            CaffeineCacheManager cacheManager,
+                            @Value("${messages.latest-values.max-keys}") int maxKeys,
+                            @Value("${messages.latest-values.max-bytes-per-topic}") long maxBytes,
+                            @Value("${messages.latest-values.max-topics}") long maxTopics,
+                            @Value("${messages.latest-values.idle-timeout-seconds}") long idleTimeoutSeconds,
+                            @Value("${messages.reader.read-timeout-millis}") int readTimeoutMillis) {
+        this.pulsarClient = pulsarClient;
+        this.messageDecoder = messageDecoder;
+        this.maxKeys = maxKeys;
+        this.maxBytes = maxBytes;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.tables = Caffeine.newBuilder()
+                .maximumSize(maxTopics)
+                .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)
+                .removalListener((String topic, KeyTable table, RemovalCause cause) -> {
+                    if (table != null) {
+                        table.close();
+                    }
+                })
+                .recordStats()
+                .build();
+        cacheManager.registerCustomCache(CACHE_NAME, (Cache<Object, Object>) (Cache<?, ?>) tables);
+    }
+
+    /**
+     * @param refresh  Whether to read the entries published since the previous request first. Without refreshing the
+     *                 keys are served as they were read last time.
+     * @param page     Index of the page, starting at 0.
+     * @param pageSize The maximum amount of keys per page, at least 1.
+     */
+    public LatestValuesDto getLatestValues(String topic, LatestValueOrder order, int page, int pageSize, boolean refresh) {
+        Optional<LatestValuesDto> latestValues;
+        do {
+            // the table might get evicted and closed while waiting for it, the next one then starts over
+            latestValues = tables.get(topic, KeyTable::new).page(order, page, pageSize, refresh);
+        } while (latestValues.isEmpty());
+        return latestValues.get();
+    }
+
+    public enum LatestValueOrder {
+        /**
+         * Ascending by key.
+         */
+        KEY,
+        /**
+         * Latest published value first.
+         */
+        PUBLISH_TIME
+    }
+
+    private class KeyTable {
+
+        private final String topic;
+        /**
+         * Guards the reader and the keys while new messages are read. Pages are served from the view published by the
+         * latest refresh and never wait for a refresh, unless nothing has been read yet.
+         */
+        private final ReentrantLock refreshLock = new ReentrantLock();
+        /**
+         * Preview of the latest message per key, the key updated least recently first so that it is the first to be
+         * evicted.
+         */
+        private final LinkedHashMap<String, MessageDto> latest = new LinkedHashMap<>();
+        private long bytes;
+        private boolean evictedKeys;
+        private Reader<byte[]> reader;
+        private volatile View view;
+        private volatile boolean closed;
+
+        private KeyTable(String topic) {
+            this.topic = topic;
+        }
+
+        private Optional<LatestValuesDto> page(LatestValueOrder order, int page, int pageSize, boolean refresh) {
+            Optional<View> current = currentView(refresh);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            List<MessageDto> sorted = current.get().sorted(order);
+            int from = (int) Math.min((long) page * pageSize, sorted.size());
+            int to = (int) Math.min((long) from + pageSize, sorted.size());
+            return Optional.of(new LatestValuesDto(List.copyOf(sorted.subList(from, to)), sorted.size(), current.get().complete()));
+        }
+
+        /**
+         * @return The view after reading the messages published since the previous refresh, or the current view if
+         * another request is refreshing right now. Empty if the table has been closed.
+         */
+        private Optional<View> currentView(boolean refresh) {
+            View current = view;
+            if (closed) {
+                return Optional.empty();
+            }
+            if (current != null && !refresh) {
+                return Optional.of(current);
+            }
+            if (current == null) {
+                refreshLock.lock();
+            } else if (!refreshLock.tryLock()) {
+                return Optional.of(current);
+            }
+            try {
+                if (closed) {
+                    return Optional.empty();
+                }
+                if (current == null && view != null) {
+                    // read by the request that held the lock meanwhile
+                    return Optional.of(view);
+                }
+                if (refresh() || view == null) {
+                    view = View.of(latest.values(), !evictedKeys);
+                }
+                return Optional.of(view);
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        /**
+         * Reads everything published since the previous refresh. If the reader fails, the table is rebuilt from the
+         * beginning of the topic on the next refresh.
+         *
+         * @return Whether the keys might have changed, so the view has to be built anew.
+         */
+        private boolean refresh() {
+            try {
+                boolean rebuilt = reader == null;
+                if (rebuilt) {
+                    latest.clear();
+                    bytes = 0;
+                    evictedKeys = false;
+                    reader = createReader();
+                }
+                var decoder = messageDecoder.forTopic(topic);
+                int read = 0;
+                while (reader.hasMessageAvailable()) {
+                    Message<byte[]> message = reader.readNext(readTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (message == null) {
+                        break;
+                    }
+                    apply(message, decoder);
+                    read++;
+                }
+                log.debug("Read {} new messages of compacted topic '{}', {} keys", read, topic, latest.size());
+                return rebuilt || read > 0;
+            } catch (PulsarClientException e) {
+                closeReader();
+                throw new PulsarApiException("Could not read the latest values of topic '%s'".formatted(topic), e);
+            }
+        }
+
+        /**
+         * Keeps the preview of the message instead of the message itself, so a key costs at most the size of a
+         * preview. Keys updated least recently are evicted as soon as either the amount of keys or their size exceed
+         * their limits.
+         */
+        private void apply(Message<byte[]> message, MessageDecoder.TopicDecoder decoder) {
+            if (!message.hasKey()) {
+                // compaction keeps no messages without key either
+                return;
+            }
+            // re-inserting moves the key to the end of the eviction order
+            MessageDto previous = latest.remove(message.getKey());
+            if (previous != null) {
+                bytes -= sizeOf(previous);
+            }
+            if (message.getData().length > 0) {
+                MessageDto messageDto = decoder.toMessageDto(message);
+                latest.put(message.getKey(), messageDto);
+                bytes += sizeOf(messageDto);
+            }
+            var eldest = latest.values().iterator();
+            while ((latest.size() > maxKeys || bytes > maxBytes) && eldest.hasNext()) {
+                bytes -= sizeOf(eldest.next());
+                eldest.remove();
+                evictedKeys = true;
+            }
+        }
+
+        private Reader<byte[]> createReader() throws PulsarClientException {
+            return pulsarClient.newReader()
+                    .topic(topic)
+                    .startMessageId(MessageId.earliest)
+                    .readCompacted(true)
+                    .subscriptionRolePrefix(SUBSCRIPTION_ROLE_PREFIX)
+                    .create();
+        }
+
+        private void close() {
+            closed = true;
+            refreshLock.lock();
+            try {
+                closeReader();
+                latest.clear();
+                bytes = 0;
+                view = null;
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+
+        private void closeReader() {
+            if (reader == null) {
+                return;
+            }
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.debug("Could not close compacted reader of topic '{}'", topic, e);
+            }
+            reader = null;
+        }
+
+    }
+
+    /**
+     * The keys of a table as of its latest refresh in every order pages can be requested in, never modified. Sorting
+     * once per refresh lets every page be a slice of the sorted keys.
+     */
+    private record View(List<MessageDto> byKey, List<MessageDto> byPublishTime, boolean complete) {
+
+        private static View of(Collection<MessageDto> messages, boolean complete) {
+            List<MessageDto> byKey = new ArrayList<>(messages);
+            byKey.sort(Comparator.comparing(MessageDto::getKey));
+            List<MessageDto> byPublishTime = new ArrayList<>(messages);
+            byPublishTime.sort(Comparator.comparingLong(MessageDto::getPublishTime).reversed());
+            return new View(Collections.unmodifiableList(byKey), Collections.unmodifiableList(byPublishTime), complete);
+        }
+
+        private List<MessageDto> sorted(LatestValueOrder order) {
+            return switch (order) {
+                case KEY -> byKey;
+                case PUBLISH_TIME -> byPublishTime;
+            };
+        }
+
+    }
+
+    private static long sizeOf(MessageDto messageDto) {
+        // chars take two bytes
+        return 2L * (messageDto.getPayload().length() + messageDto.getKey().length()) + 512;
+    }
+
+}
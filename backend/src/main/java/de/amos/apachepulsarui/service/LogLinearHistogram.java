@@ -0,0 +1,90 @@
+package de.amos.apachepulsarui.service;
+
+/**
+ * Histogram of non-negative int values in the style of HdrHistogram: every power of two is split into the same
+ * amount of linear sub-buckets, so the relative error of a percentile is bounded by the sub-bucket resolution no
+ * matter how large the values get, while the histogram stays a fixed array of a few thousand counters.
+ */
+final class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below SUB_BUCKETS are counted exactly, every power of two above that gets SUB_BUCKETS buckets.
+     */
+    private final long[] counts = new long[(Integer.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long sum;
+    private int min = Integer.MAX_VALUE;
+    private int max;
+
+    void record(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be recorded, got " + value);
+        }
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.99 for the 99th percentile.
+     * @return The highest value of the bucket holding the quantile, but never more than the maximum recorded value.
+     */
+    int valueAtQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= rank) {
+                return (int) Math.min(highestValueOf(index), max);
+            }
+        }
+        return max;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getSum() {
+        return sum;
+    }
+
+    int getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    int getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    static int indexOf(int value) {
+        if (value < SUB_BUCKETS) {
+            return value;
+        }
+        int shift = (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = value >>> shift;
+        return (shift + 1) * SUB_BUCKETS + (subBucket - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
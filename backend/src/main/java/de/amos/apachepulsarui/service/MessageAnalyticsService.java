@@ -0,0 +1,176 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.dto.MessageAnalyticsDto;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.common.naming.TopicName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Summarizes a range of a topic in a single pass without decoding any payload. Every message only updates a handful
+ * of fixed size accumulators, so the memory needed does not depend on the size of the range and the response is a
+ * few hundred bytes instead of the messages themselves.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MessageAnalyticsService {
+
+    static final String OTHER_PRODUCERS = "(other)";
+
+    private final PulsarAdmin pulsarAdmin;
+    private final MessageBrowser messageBrowser;
+
+    /**
+     * Upper limit of the messages summarized by a single request, whatever range is requested.
+     */
+    @Value("${messages.analytics.max-messages}")
+    private int maxMessages;
+
+    /**
+     * Producers beyond this amount are counted together as "(other)".
+     */
+    @Value("${messages.analytics.max-producers}")
+    private int maxProducers;
+
+    /**
+     * @param numMessages The amount of latest messages to summarize, if no publish time window is given. Spread evenly
+     *                    over the partitions of partitioned topics.
+     * @param from        Epoch millis of the earliest publish time to summarize.
+     * @param to          Epoch millis of the latest publish time to summarize.
+     */
+    public MessageAnalyticsDto analyze(String topic, Integer numMessages, Long from, Long to) {
+        Accumulators accumulators = new Accumulators();
+        int budget = numMessages == null ? maxMessages : Math.min(numMessages, maxMessages);
+        boolean timeWindow = from != null || to != null;
+
+        int partitions = getPartitions(topic);
+        if (partitions == 0) {
+            read(topic, timeWindow, from, to, budget, accumulators);
+        } else {
+            for (int partition = 0; partition < partitions; partition++) {
+                String partitionTopic = TopicName.get(topic).getPartition(partition).toString();
+                // a time window is limited by the overall budget, the latest messages are shared among the partitions
+                int partitionBudget = timeWindow
+                        ? budget - (int) accumulators.sizes.getCount()
+                        : (budget + partitions - 1) / partitions;
+                if (partitionBudget <= 0) {
+                    break;
+                }
+                read(partitionTopic, timeWindow, from, to, partitionBudget, accumulators);
+            }
+        }
+        return accumulators.summarize();
+    }
+
+    private void read(String topic, boolean timeWindow, Long from, Long to, int budget, Predicate<Message<byte[]>> sink) {
+        if (timeWindow) {
+            messageBrowser.readPublishedBetween(topic, from == null ? 0 : from, to == null ? Long.MAX_VALUE : to, budget, sink);
+        } else {
+            messageBrowser.streamLatest(topic, budget, sink);
+        }
+    }
+
+    private int getPartitions(String topic) {
+        try {
+            return pulsarAdmin.topics().getPartitionedTopicMetadata(topic).partitions;
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not fetch the partitions of topic '%s'".formatted(topic), e);
+        }
+    }
+
+    private class Accumulators implements Predicate<Message<byte[]>> {
+
+        private final LogLinearHistogram sizes = new LogLinearHistogram();
+        private final SecondCounter perSecond = new SecondCounter();
+        private final Map<String, long[]> perProducer = new HashMap<>();
+        private final HyperLogLog keys = new HyperLogLog();
+        private long messagesWithKey;
+        private long firstPublishTime = Long.MAX_VALUE;
+        private long lastPublishTime = Long.MIN_VALUE;
+
+        @Override
+        public boolean test(Message<byte[]> message) {
+            sizes.record(message.size());
+
+            long publishTime = message.getPublishTime();
+            perSecond.increment(publishTime);
+            firstPublishTime = Math.min(firstPublishTime, publishTime);
+            lastPublishTime = Math.max(lastPublishTime, publishTime);
+
+            String producer = message.getProducerName();
+            long[] producerCount = perProducer.get(producer);
+            if (producerCount == null) {
+                producerCount = perProducer.size() < maxProducers
+                        ? perProducer.computeIfAbsent(producer, p -> new long[1])
+                        : perProducer.computeIfAbsent(OTHER_PRODUCERS, p -> new long[1]);
+            }
+            producerCount[0]++;
+
+            if (message.hasKey()) {
+                messagesWithKey++;
+                keys.add(message.getKey());
+            }
+            return true;
+        }
+
+        private MessageAnalyticsDto summarize() {
+            long messages = sizes.getCount();
+            return new MessageAnalyticsDto(
+                    messages,
+                    new MessageAnalyticsDto.PayloadSizes(
+                            sizes.getSum(),
+                            sizes.getMin(),
+                            sizes.getMax(),
+                            sizes.getMean(),
+                            sizes.valueAtQuantile(0.5),
+                            sizes.valueAtQuantile(0.9),
+                            sizes.valueAtQuantile(0.99),
+                            sizes.valueAtQuantile(0.999)
+                    ),
+                    publishRate(messages),
+                    producersBusiestFirst(),
+                    messagesWithKey,
+                    messagesWithKey == 0 ? 0 : keys.estimate()
+            );
+        }
+
+        private MessageAnalyticsDto.PublishRate publishRate(long messages) {
+            if (messages == 0) {
+                return new MessageAnalyticsDto.PublishRate(null, null, 0, 0, null, 0);
+            }
+            // a range within a single second still spans that second
+            double seconds = Math.max(1, (lastPublishTime - firstPublishTime) / 1000.0);
+            Long peakSecond = perSecond.busiestSecond();
+            return new MessageAnalyticsDto.PublishRate(
+                    firstPublishTime,
+                    lastPublishTime,
+                    messages / seconds,
+                    perSecond.countOf(peakSecond),
+                    peakSecond * 1000,
+                    perSecond.size()
+            );
+        }
+
+        private Map<String, Long> producersBusiestFirst() {
+            Map<String, Long> producers = new LinkedHashMap<>();
+            perProducer.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed())
+                    .forEach(e -> producers.put(e.getKey(), e.getValue()[0]));
+            return producers;
+        }
+
+    }
+
+}
@@ -0,0 +1,285 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.ReaderPool.PooledReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.api.Reader;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.apache.pulsar.common.api.proto.CommandSubscribe;
+import org.apache.pulsar.common.policies.data.ManagedLedgerInternalStats.LedgerInfo;
+import org.apache.pulsar.common.policies.data.PersistentTopicInternalStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Browses topics through non-durable readers over the binary protocol instead of examining one message per admin
+ * request. Messages arrive in batches of the reader's receiver queue, so reading a range of a topic is a single
+ * streaming pass.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MessageBrowser {
+
+    private final PulsarAdmin pulsarAdmin;
+    private final ReaderPool readerPool;
+
+    /**
+     * How long to wait for the next message of a range the broker announced as available before giving up.
+     */
+    @Value("${messages.reader.read-timeout-millis}")
+    private int readTimeoutMillis;
+
+    /**
+     * @return The latest messages of the topic, oldest first. Might contain fewer messages than requested if the
+     * topic does not hold as many.
+     */
+    public List<Message<byte[]>> readLatest(String topic, int numMessages) {
+        if (numMessages <= 0) {
+            return Collections.emptyList();
+        }
+        MessageId start = findLatestMinus(topic, numMessages);
+        if (start == null) {
+            return Collections.emptyList();
+        }
+        // An entry might contain a whole batch of messages, so the range starting numMessages entries back can hold
+        // more than numMessages messages. Only keep the latest ones.
+        ArrayDeque<Message<byte[]>> latest = new ArrayDeque<>(numMessages);
+        read(topic, start, true, Integer.MAX_VALUE, message -> {
+            if (latest.size() == numMessages) {
+                latest.pollFirst();
+            }
+            latest.addLast(message);
+            return true;
+        });
+        return new ArrayList<>(latest);
+    }
+
+    /**
+     * Streams the latest messages of the topic, oldest first, without holding them in memory. The range starts the
+     * given amount of entries before the end of the topic, so for batched messages the stream ends at the given maximum
+     * amount of messages before it reaches the end of the topic.
+     */
+    public void streamLatest(String topic, int numMessages, Predicate<Message<byte[]>> sink) {
+        if (numMessages <= 0) {
+            return;
+        }
+        MessageId start = findLatestMinus(topic, numMessages);
+        if (start != null) {
+            read(topic, start, true, numMessages, sink);
+        }
+    }
+
+    /**
+     * @return Up to numMessages messages directly following the given message, oldest first.
+     */
+    public List<Message<byte[]>> readAfter(String topic, MessageId after, int numMessages) {
+        List<Message<byte[]>> messages = new ArrayList<>(numMessages);
+        read(topic, after, false, numMessages, messages::add);
+        return messages;
+    }
+
+    /**
+     * Reads the page in front of a message without scanning the topic from its beginning: the start of the page is
+     * computed by stepping back over the entries of the topic's ledgers, which costs one admin call no matter how deep
+     * into the backlog the page is.
+     *
+     * @return Up to numMessages messages directly preceding the given message, oldest first.
+     */
+    public List<Message<byte[]>> readBefore(String topic, MessageId before, int numMessages) {
+        if (numMessages <= 0) {
+            return Collections.emptyList();
+        }
+        MessageId start = stepBack(topic, before, numMessages);
+        ArrayDeque<Message<byte[]>> messages = new ArrayDeque<>(numMessages);
+        read(topic, start, true, Integer.MAX_VALUE, message -> {
+            if (message.getMessageId().compareTo(before) >= 0) {
+                return false;
+            }
+            if (messages.size() == numMessages) {
+                messages.pollFirst();
+            }
+            messages.addLast(message);
+            return true;
+        });
+        return new ArrayList<>(messages);
+    }
+
+    /**
+     * Reads the topic from the given position on until either the end of the topic, the maximum amount of messages
+     * or a message the sink rejects is reached.
+     *
+     * @param start       The message id to start reading at.
+     * @param inclusive   Whether the message at the start position itself should be read.
+     * @param maxMessages The maximum amount of messages handed to the sink.
+     * @param sink        Receives the messages in publish order. Returning false stops reading.
+     */
+    public void read(String topic, MessageId start, boolean inclusive, int maxMessages, Predicate<Message<byte[]>> sink) {
+        read(topic,
+                reader -> reader.seek(start),
+                message -> isBefore(message.getMessageId(), start, inclusive),
+                maxMessages,
+                sink);
+    }
+
+    /**
+     * Reads the messages published within the given time window by seeking the reader to the start of the window,
+     * so reading starts at the ledger entries of the window. Messages published after the window are skipped rather
+     * than ending the read: the reader of a partitioned topic interleaves its partitions, and even a single topic
+     * does not guarantee publish times in order once producer clocks differ or sends are retried.
+     *
+     * @param from        Epoch millis of the earliest publish time to read.
+     * @param to          Epoch millis of the latest publish time to read.
+     * @param maxMessages The maximum amount of messages read from the start of the window, including skipped ones.
+     */
+    public void readPublishedBetween(String topic, long from, long to, int maxMessages, Predicate<Message<byte[]>> sink) {
+        read(topic,
+                reader -> reader.seek(from),
+                message -> message.getPublishTime() < from,
+                maxMessages,
+                message -> message.getPublishTime() > to || sink.test(message));
+    }
+
+    private void read(String topic,
+                      Seek seek,
+                      Predicate<Message<byte[]>> skip,
+                      int maxMessages,
+                      Predicate<Message<byte[]>> sink) {
+        try (PooledReader pooledReader = readerPool.acquire(topic)) {
+            try {
+                Reader<byte[]> reader = pooledReader.reader();
+                seek.apply(reader);
+                int handedOut = 0;
+                while (handedOut < maxMessages && reader.hasMessageAvailable()) {
+                    Message<byte[]> message = reader.readNext(readTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (message == null) {
+                        break;
+                    }
+                    if (skip.test(message)) {
+                        continue;
+                    }
+                    handedOut++;
+                    if (!sink.test(message)) {
+                        break;
+                    }
+                }
+            } catch (PulsarClientException e) {
+                pooledReader.invalidate();
+                throw new PulsarApiException("Could not read messages of topic '%s'".formatted(topic), e);
+            } catch (RuntimeException e) {
+                pooledReader.invalidate();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Seeking only guarantees to land at the start position or at the beginning of its batch, so messages in front of
+     * the requested position are skipped while reading.
+     */
+    private static boolean isBefore(MessageId messageId, MessageId start, boolean inclusive) {
+        if (MessageId.earliest.equals(start)) {
+            return false;
+        }
+        int comparison = messageId.compareTo(start);
+        return inclusive ? comparison < 0 : comparison <= 0;
+    }
+
+    /**
+     * @return The position numEntries entries in front of the given message or the beginning of the topic if there
+     * are not as many entries in front of it.
+     */
+    private MessageId stepBack(String topic, MessageId from, int numEntries) {
+        MessageIdImpl position = MessageIds.toImpl(from);
+        PersistentTopicInternalStats internalStats = getInternalStats(topic);
+        List<LedgerInfo> ledgers = internalStats.ledgers;
+
+        int ledgerIndex = indexOfLedger(ledgers, position.getLedgerId());
+        if (ledgerIndex < 0) {
+            return MessageId.earliest;
+        }
+        long remaining = numEntries;
+        long entryId = position.getEntryId();
+        while (entryId < remaining) {
+            remaining -= entryId;
+            ledgerIndex--;
+            if (ledgerIndex < 0) {
+                return MessageId.earliest;
+            }
+            entryId = entriesOf(ledgers, ledgerIndex, internalStats);
+        }
+        return new MessageIdImpl(ledgers.get(ledgerIndex).ledgerId, entryId - remaining, position.getPartitionIndex());
+    }
+
+    private static int indexOfLedger(List<LedgerInfo> ledgers, long ledgerId) {
+        for (int i = ledgers.size() - 1; i >= 0; i--) {
+            if (ledgers.get(i).ledgerId == ledgerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The ledger currently written to does not know its amount of entries yet, the topic stats keep track of it.
+     */
+    private static long entriesOf(List<LedgerInfo> ledgers, int ledgerIndex, PersistentTopicInternalStats internalStats) {
+        boolean isCurrentLedger = ledgerIndex == ledgers.size() - 1;
+        return isCurrentLedger ? internalStats.currentLedgerEntries : ledgers.get(ledgerIndex).entries;
+    }
+
+    private PersistentTopicInternalStats getInternalStats(String topic) {
+        try {
+            return pulsarAdmin.topics().getInternalStats(topic);
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not fetch the ledgers of topic '%s'".formatted(topic), e);
+        }
+    }
+
+    /**
+     * Locates the message numMessages entries before the end of the topic with a single admin call.
+     *
+     * @return The message id to start reading at or null if the topic has no messages.
+     */
+    private MessageId findLatestMinus(String topic, int numMessages) {
+        try {
+            // ensure that we don't look up more messages than exist
+            long producedMessagesUntilNow = pulsarAdmin.topics().getStats(topic).getMsgInCounter();
+            if (producedMessagesUntilNow == 0) {
+                return null;
+            }
+            long position = Math.min(producedMessagesUntilNow, numMessages);
+            return pulsarAdmin.topics()
+                    .examineMessage(topic, CommandSubscribe.InitialPosition.Latest.name(), position)
+                    .getMessageId();
+        } catch (PulsarAdminException.NotFoundException | PulsarAdminException.PreconditionFailedException e) {
+            // the message counter also counts messages that have been removed by retention already
+            log.debug("Could not examine message {} from the end of topic '{}', reading from the beginning", numMessages, topic);
+            return MessageId.earliest;
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException(
+                    "Could not find the start position to read '%d' messages from topic '%s'".formatted(numMessages, topic),
+                    e
+            );
+        }
+    }
+
+    @FunctionalInterface
+    private interface Seek {
+        void apply(Reader<byte[]> reader) throws PulsarClientException;
+    }
+
+}
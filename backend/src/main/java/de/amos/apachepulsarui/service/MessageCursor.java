@@ -0,0 +1,33 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.BadRequestException;
+import org.apache.pulsar.client.api.MessageId;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Opaque cursors handed to clients to continue browsing a topic from a message on. A cursor is the URL-safe Base64
+ * encoding of the serialized message id.
+ */
+public final class MessageCursor {
+
+    private MessageCursor() {
+    }
+
+    public static String encode(MessageId messageId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(messageId.toByteArray());
+    }
+
+    /**
+     * @throws BadRequestException.InvalidCursor If the cursor has not been created by {@link #encode(MessageId)}.
+     */
+    public static MessageId decode(String cursor) {
+        try {
+            return MessageId.fromByteArray(Base64.getUrlDecoder().decode(cursor));
+        } catch (IOException | RuntimeException e) {
+            throw new BadRequestException.InvalidCursor();
+        }
+    }
+
+}
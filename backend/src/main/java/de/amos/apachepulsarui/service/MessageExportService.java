@@ -0,0 +1,322 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import de.amos.apachepulsarui.service.decoder.SchemaVersionCache;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParseException;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.schema.SchemaInfoWithVersion;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports large ranges of a topic as files. Messages are written to the response as they are read, through a buffer
+ * of fixed size, so memory usage does not depend on the size of the export.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MessageExportService {
+
+    private static final long PROGRESS_LOG_INTERVAL = 100_000;
+
+    private final PulsarAdmin pulsarAdmin;
+    private final MessageBrowser messageBrowser;
+    private final MessageDecoder messageDecoder;
+    private final SchemaVersionCache schemaVersionCache;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Upper limit of the messages of a single export, whatever range is requested.
+     */
+    @Value("${messages.export.max-messages}")
+    private int maxMessages;
+
+    /**
+     * Size of the buffer between the export and the response, flushed whenever it is full.
+     */
+    @Value("${messages.export.buffer-bytes}")
+    private int bufferBytes;
+
+    /**
+     * Checks that the topic can be exported in the given format before anything is written, so that the client gets
+     * a proper error response instead of a broken file.
+     *
+     * @throws BadRequestException.UnsupportedExportFormat If an Avro export is requested for a topic without Avro schema.
+     */
+    public MessageExport prepare(String topic, ExportRange range, ExportFormat format) {
+        return switch (format) {
+            case NDJSON_GZIP -> new MessageExport(topic, range, format, null);
+            case AVRO -> new MessageExport(topic, range, format, getAvroSchema(topic));
+        };
+    }
+
+    private SchemaInfoWithVersion getAvroSchema(String topic) {
+        try {
+            SchemaInfoWithVersion schema = pulsarAdmin.schemas().getSchemaInfoWithVersion(topic);
+            if (schema.getSchemaInfo().getType() != SchemaType.AVRO) {
+                throw new BadRequestException.UnsupportedExportFormat(
+                        "Topic '%s' has a %s schema.".formatted(topic, schema.getSchemaInfo().getType()));
+            }
+            return schema;
+        } catch (PulsarAdminException.NotFoundException e) {
+            throw new BadRequestException.UnsupportedExportFormat("Topic '%s' has no schema.".formatted(topic));
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not fetch the schema of topic '%s'".formatted(topic), e);
+        }
+    }
+
+    /**
+     * The range of a topic to export. Message ids take precedence over publish times, which take precedence over the
+     * amount of latest messages.
+     *
+     * @param numMessages   The amount of latest messages to export.
+     * @param fromMessageId The first message to export, as returned with it.
+     * @param toMessageId   The last message to export, as returned with it.
+     * @param from          Epoch millis of the earliest publish time to export.
+     * @param to            Epoch millis of the latest publish time to export.
+     */
+    public record ExportRange(Integer numMessages, String fromMessageId, String toMessageId, Long from, Long to) {
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum ExportFormat {
+        /**
+         * Newline delimited JSON like /messages/stream writes it, gzip compressed.
+         */
+        NDJSON_GZIP(MediaType.parseMediaType("application/gzip"), ".ndjson.gz"),
+        /**
+         * Avro object container file holding the raw records, for topics with Avro schema. The blocks of the file are
+         * deflate compressed.
+         */
+        AVRO(MediaType.parseMediaType("application/avro"), ".avro");
+
+        private final MediaType mediaType;
+        private final String fileExtension;
+    }
+
+    public class MessageExport {
+
+        private final String topic;
+        private final ExportRange range;
+        private final ExportFormat format;
+        private final SchemaInfoWithVersion avroSchema;
+
+        private long messagesRead;
+        private long skipped;
+        private boolean cancelled;
+
+        private MessageExport(String topic, ExportRange range, ExportFormat format, SchemaInfoWithVersion avroSchema) {
+            this.topic = topic;
+            this.range = range;
+            this.format = format;
+            this.avroSchema = avroSchema;
+        }
+
+        public String getFileName() {
+            return TopicName.get(topic).getLocalName() + format.getFileExtension();
+        }
+
+        public void writeTo(OutputStream response) throws IOException {
+            long start = System.nanoTime();
+            CountingOutputStream counted = new CountingOutputStream(response);
+            try (BufferedOutputStream buffered = new BufferedOutputStream(counted, bufferBytes)) {
+                switch (format) {
+                    case NDJSON_GZIP -> writeNdjson(buffered);
+                    case AVRO -> writeAvro(buffered);
+                }
+            } catch (IOException e) {
+                // the client went away while the last buffer was written
+                cancelled = true;
+            }
+            logThroughput(start, counted.getCount());
+        }
+
+        private void writeNdjson(OutputStream output) throws IOException {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(output, bufferBytes)) {
+                var decoder = messageDecoder.forTopic(topic);
+                var writer = new MessageStreamWriter(gzip, objectMapper, MessageStreamWriter.Format.NDJSON, Long.MAX_VALUE, false);
+                read(message -> {
+                    boolean written = writer.test(decoder.toStreamedMessage(message));
+                    cancelled = writer.isCancelled();
+                    return written;
+                });
+            }
+        }
+
+        /**
+         * Records written with the schema version of the file are appended as they are. Records of other versions
+         * are resolved to the schema of the file first, records that can't be resolved are skipped. Versions whose
+         * writer schema can't be fetched are remembered, so their records are skipped without asking again.
+         */
+        private void writeAvro(OutputStream output) throws IOException {
+            Schema schema = new Schema.Parser().parse(avroSchema.getSchemaInfo().getSchemaDefinition());
+            Map<Long, Optional<GenericDatumReader<GenericRecord>>> resolvingReaders = new HashMap<>();
+            try (DataFileWriter<GenericRecord> fileWriter = new DataFileWriter<>(new GenericDatumWriter<>(schema))) {
+                fileWriter.setCodec(CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL));
+                fileWriter.create(schema, output);
+                BinaryDecoder[] binaryDecoder = new BinaryDecoder[1];
+                read(message -> {
+                    Long version = MessageDecoder.schemaVersionOf(message);
+                    try {
+                        if (version == null || version == avroSchema.getVersion()) {
+                            fileWriter.appendEncoded(ByteBuffer.wrap(message.getData()));
+                            return true;
+                        }
+                        var reader = resolvingReaders.computeIfAbsent(version, v -> resolvingReader(v, schema));
+                        if (reader.isEmpty()) {
+                            skipped++;
+                            return true;
+                        }
+                        GenericRecord record;
+                        try {
+                            binaryDecoder[0] = DecoderFactory.get().binaryDecoder(message.getData(), binaryDecoder[0]);
+                            record = reader.get().read(null, binaryDecoder[0]);
+                        } catch (IOException | RuntimeException e) {
+                            log.debug("Could not resolve message {} of topic '{}' to the exported schema, skipping it",
+                                    message.getMessageId(), topic, e);
+                            skipped++;
+                            return true;
+                        }
+                        fileWriter.append(record);
+                        return true;
+                    } catch (IOException e) {
+                        log.debug("Client stopped receiving the export of topic '{}'", topic, e);
+                        cancelled = true;
+                        return false;
+                    }
+                });
+            }
+        }
+
+        /**
+         * @return A reader resolving records of the given version to the schema of the file, empty if the writer
+         * schema of the version can't be fetched or parsed.
+         */
+        private Optional<GenericDatumReader<GenericRecord>> resolvingReader(long version, Schema schema) {
+            try {
+                var writerSchema = schemaVersionCache.getSchemaInfo(topic, version).join();
+                return Optional.of(new GenericDatumReader<>(new Schema.Parser().parse(writerSchema.getSchemaDefinition()), schema));
+            } catch (CompletionException | SchemaParseException e) {
+                log.debug("Could not fetch version {} of the schema of topic '{}', skipping its messages", version, topic, e);
+                return Optional.empty();
+            }
+        }
+
+        private void read(Predicate<Message<byte[]>> sink) {
+            Predicate<Message<byte[]>> counting = message -> {
+                if (!sink.test(message)) {
+                    return false;
+                }
+                if (++messagesRead % PROGRESS_LOG_INTERVAL == 0) {
+                    log.debug("Exported {} messages of topic '{}' so far", messagesRead - skipped, topic);
+                }
+                return true;
+            };
+            if (range.fromMessageId() != null || range.toMessageId() != null) {
+                readBetweenMessageIds(counting);
+            } else if (range.from() != null || range.to() != null) {
+                messageBrowser.readPublishedBetween(
+                        topic,
+                        range.from() == null ? 0 : range.from(),
+                        range.to() == null ? Long.MAX_VALUE : range.to(),
+                        maxMessages,
+                        counting
+                );
+            } else {
+                int numMessages = range.numMessages() == null ? maxMessages : Math.min(range.numMessages(), maxMessages);
+                messageBrowser.streamLatest(topic, numMessages, counting);
+            }
+        }
+
+        private void readBetweenMessageIds(Predicate<Message<byte[]>> sink) {
+            MessageIdImpl from = range.fromMessageId() == null ? null : MessageIds.parse(range.fromMessageId());
+            MessageIdImpl to = range.toMessageId() == null ? null : MessageIds.parse(range.toMessageId());
+            MessageIdImpl partitioned = from != null ? from : to;
+            TopicName topicName = TopicName.get(topic);
+            // messages read from partitioned topics carry their partition in the id
+            String readTopic = !topicName.isPartitioned() && partitioned.getPartitionIndex() >= 0
+                    ? topicName.getPartition(partitioned.getPartitionIndex()).toString()
+                    : topic;
+            MessageId start = from == null ? MessageId.earliest : from;
+            messageBrowser.read(readTopic, start, true, maxMessages,
+                    message -> (to == null || message.getMessageId().compareTo(to) <= 0) && sink.test(message));
+        }
+
+        private void logThroughput(long startNanos, long bytes) {
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 0.001);
+            long exported = messagesRead - skipped;
+            log.info("Exported {} messages ({} skipped) of topic '{}' as {} in {} s: {} messages/s, {} bytes at {} KiB/s{}",
+                    exported,
+                    skipped,
+                    topic,
+                    format,
+                    "%.1f".formatted(seconds),
+                    Math.round(exported / seconds),
+                    bytes,
+                    Math.round(bytes / 1024.0 / seconds),
+                    cancelled ? ", cancelled by the client" : "");
+        }
+
+    }
+
+    /**
+     * Counts the bytes actually handed to the response, i.e. after compression.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        @Getter
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+}
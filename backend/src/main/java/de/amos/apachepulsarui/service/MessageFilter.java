@@ -0,0 +1,85 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.apache.pulsar.client.api.Message;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters messages by their metadata: key, properties and event time. The filter works on the raw messages, so
+ * messages not matching are dropped before their payload gets decoded.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MessageFilter {
+
+    public static final MessageFilter NONE = new MessageFilter(null, Map.of(), null, null);
+
+    String key;
+    Map<String, String> properties;
+    Long eventTimeFrom;
+    Long eventTimeTo;
+
+    /**
+     * @param properties    Properties the messages must have, each one as name:value.
+     * @param eventTimeFrom Epoch millis of the earliest event time to match.
+     * @param eventTimeTo   Epoch millis of the latest event time to match.
+     * @throws BadRequestException.InvalidMessageFilter If a property is not given as name:value.
+     */
+    public static MessageFilter of(String key, List<String> properties, Long eventTimeFrom, Long eventTimeTo) {
+        Map<String, String> requiredProperties = new HashMap<>();
+        for (String property : properties) {
+            int separator = property.indexOf(':');
+            if (separator <= 0) {
+                throw new BadRequestException.InvalidMessageFilter("Property filter '%s' invalid.".formatted(property));
+            }
+            requiredProperties.put(property.substring(0, separator), property.substring(separator + 1));
+        }
+        return new MessageFilter(key, requiredProperties, eventTimeFrom, eventTimeTo);
+    }
+
+    public boolean isEmpty() {
+        return this.equals(NONE);
+    }
+
+    public boolean matches(Message<byte[]> message) {
+        if (key != null && !(message.hasKey() && key.equals(message.getKey()))) {
+            return false;
+        }
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (!property.getValue().equals(message.getProperty(property.getKey()))) {
+                return false;
+            }
+        }
+        // messages without event time have an event time of 0
+        return matchesEventTime(message.getEventTime() > 0 ? message.getEventTime() : null);
+    }
+
+    public boolean matches(MessageDto message) {
+        if (key != null && !key.equals(message.getKey())) {
+            return false;
+        }
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (!property.getValue().equals(message.getProperties().get(property.getKey()))) {
+                return false;
+            }
+        }
+        return matchesEventTime(message.getEventTime());
+    }
+
+    private boolean matchesEventTime(Long eventTime) {
+        if (eventTimeFrom == null && eventTimeTo == null) {
+            return true;
+        }
+        return eventTime != null
+                && (eventTimeFrom == null || eventTime >= eventTimeFrom)
+                && (eventTimeTo == null || eventTime <= eventTimeTo);
+    }
+
+}
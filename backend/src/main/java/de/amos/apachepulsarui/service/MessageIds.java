@@ -0,0 +1,66 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.BadRequestException;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.MessageIdAdv;
+import org.apache.pulsar.client.impl.BatchMessageIdImpl;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+
+/**
+ * Access to the ledger and entry a message id points to, which the public {@link MessageId} interface hides.
+ */
+final class MessageIds {
+
+    private MessageIds() {
+    }
+
+    static MessageIdImpl toImpl(MessageId messageId) {
+        if (messageId instanceof MessageIdImpl messageIdImpl) {
+            return messageIdImpl;
+        }
+        if (messageId instanceof MessageIdAdv position) {
+            // e.g. the ids of multi-topic readers, which wrap the id of the partition the message was read from
+            return position.getBatchIndex() >= 0
+                    ? new BatchMessageIdImpl(position.getLedgerId(), position.getEntryId(),
+                            position.getPartitionIndex(), position.getBatchIndex())
+                    : new MessageIdImpl(position.getLedgerId(), position.getEntryId(), position.getPartitionIndex());
+        }
+        throw new IllegalArgumentException("Unsupported message id type %s".formatted(messageId.getClass().getName()));
+    }
+
+    /**
+     * @param messageId A message id in its string form ledgerId:entryId:partitionIndex[:batchIndex].
+     * @throws BadRequestException.InvalidMessageId If the string is no message id.
+     */
+    static MessageIdImpl parse(String messageId) {
+        String[] parts = messageId.split(":");
+        try {
+            if (parts.length == 3) {
+                return new MessageIdImpl(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            }
+            if (parts.length == 4) {
+                return new BatchMessageIdImpl(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new BadRequestException.InvalidMessageId();
+    }
+
+    /**
+     * @return Whether both ids point to the same message, no matter how the partition is tracked.
+     */
+    static boolean samePosition(MessageId a, MessageId b) {
+        MessageIdImpl first = toImpl(a);
+        MessageIdImpl second = toImpl(b);
+        return first.getLedgerId() == second.getLedgerId()
+                && first.getEntryId() == second.getEntryId()
+                && batchIndexOf(first) == batchIndexOf(second);
+    }
+
+    private static int batchIndexOf(MessageIdImpl messageId) {
+        return messageId instanceof BatchMessageIdImpl batchMessageId ? batchMessageId.getBatchIndex() : -1;
+    }
+
+}
@@ -0,0 +1,80 @@
+package de.amos.apachepulsarui.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.apache.pulsar.common.naming.TopicName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Fetches single messages with their whole payload, for clients that only got a preview of the payload in a listing.
+ * Recently fetched messages are kept in a small cache bounded by the size of their payloads.
+ */
+@Service
+public class MessageLookupService {
+
+    public static final String CACHE_NAME = "messages.full";
+
+    private final MessageBrowser messageBrowser;
+    private final MessageDecoder messageDecoder;
+    private final Cache<MessageKey, MessageDto> messages;
+
+    @SuppressWarnings("unchecked")
+    public MessageLookupService(MessageBrowser messageBrowser,
+                                MessageDecoder messageDecoder,
+                                CaffeineCacheManager cacheManager,
+                                @Value("${messages.full.cache-max-bytes}") long cacheMaxBytes) {
+        this.messageBrowser = messageBrowser;
+        this.messageDecoder = messageDecoder;
+        this.messages = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                // chars take two bytes
+                .weigher((MessageKey key, MessageDto message) -> 2 * message.getPayload().length() + 512)
+                .recordStats()
+                .build();
+        cacheManager.registerCustomCache(CACHE_NAME, (Cache<Object, Object>) (Cache<?, ?>) messages);
+    }
+
+    /**
+     * @param messageId The id of the message as returned with it.
+     * @return The message with its whole payload or an empty optional if the topic has no such message (anymore).
+     */
+    public Optional<MessageDto> getMessage(String topic, String messageId) {
+        MessageKey key = new MessageKey(topic, messageId);
+        MessageDto cached = messages.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<MessageDto> message = readMessage(topic, MessageIds.parse(messageId));
+        message.ifPresent(m -> messages.put(key, m));
+        return message;
+    }
+
+    private Optional<MessageDto> readMessage(String topic, MessageIdImpl messageId) {
+        TopicName topicName = TopicName.get(topic);
+        // messages read from partitioned topics carry their partition in the id
+        String readTopic = !topicName.isPartitioned() && messageId.getPartitionIndex() >= 0
+                ? topicName.getPartition(messageId.getPartitionIndex()).toString()
+                : topic;
+
+        List<Message<byte[]>> read = new ArrayList<>(1);
+        messageBrowser.read(readTopic, messageId, true, 1, read::add);
+        return read.stream()
+                .filter(m -> MessageIds.samePosition(m.getMessageId(), messageId))
+                .findFirst()
+                .map(m -> messageDecoder.forTopic(topic).toFullMessageDto(m));
+    }
+
+    private record MessageKey(String topic, String messageId) {
+    }
+
+}
@@ -0,0 +1,103 @@
+package de.amos.apachepulsarui.service;
+
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.BatchMessageIdImpl;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+
+/**
+ * A set of message positions (ledger, entry and index within the batch) kept in primitive arrays with open
+ * addressing, so adding and looking up thousands of messages neither boxes nor compares strings. Ledger ids are unique
+ * per cluster, so the partition of a message is not part of its position.
+ */
+final class MessagePositionSet {
+
+    private static final int NO_BATCH = -1;
+
+    private final long[] ledgerIds;
+    private final long[] entryIds;
+    /**
+     * The batch index shifted by two, so that 0 marks a free slot and non-batched messages (-1) are stored as 1.
+     */
+    private final int[] batchSlots;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param expectedSize The amount of positions that will be added at most.
+     */
+    MessagePositionSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        ledgerIds = new long[capacity];
+        entryIds = new long[capacity];
+        batchSlots = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    void add(MessageId messageId) {
+        MessageIdImpl position = MessageIds.toImpl(messageId);
+        int batchIndex = position instanceof BatchMessageIdImpl batchPosition ? batchPosition.getBatchIndex() : NO_BATCH;
+        add(position.getLedgerId(), position.getEntryId(), batchIndex);
+    }
+
+    void add(long ledgerId, long entryId, int batchIndex) {
+        if (size == ledgerIds.length / 2) {
+            throw new IllegalStateException("Message position set is full");
+        }
+        int slot = indexOf(ledgerId, entryId, batchIndex);
+        if (batchSlots[slot] == 0) {
+            ledgerIds[slot] = ledgerId;
+            entryIds[slot] = entryId;
+            batchSlots[slot] = batchIndex + 2;
+            size++;
+        }
+    }
+
+    boolean contains(long ledgerId, long entryId, int batchIndex) {
+        return batchSlots[indexOf(ledgerId, entryId, batchIndex)] != 0;
+    }
+
+    /**
+     * @param messageId A message id in its string form ledgerId:entryId:partitionIndex[:batchIndex].
+     */
+    boolean contains(String messageId) {
+        int firstColon = messageId.indexOf(':');
+        int secondColon = messageId.indexOf(':', firstColon + 1);
+        if (firstColon < 0 || secondColon < 0) {
+            return false;
+        }
+        int thirdColon = messageId.indexOf(':', secondColon + 1);
+        try {
+            long ledgerId = Long.parseLong(messageId, 0, firstColon, 10);
+            long entryId = Long.parseLong(messageId, firstColon + 1, secondColon, 10);
+            int batchIndex = thirdColon < 0
+                    ? NO_BATCH
+                    : Integer.parseInt(messageId, thirdColon + 1, messageId.length(), 10);
+            return contains(ledgerId, entryId, batchIndex);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The slot holding the position or the free slot it would be stored in.
+     */
+    private int indexOf(long ledgerId, long entryId, int batchIndex) {
+        int slot = hash(ledgerId, entryId, batchIndex) & mask;
+        while (batchSlots[slot] != 0
+                && !(ledgerIds[slot] == ledgerId && entryIds[slot] == entryId && batchSlots[slot] == batchIndex + 2)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long ledgerId, long entryId, int batchIndex) {
+        long h = ledgerId * 0x9E3779B97F4A7C15L + entryId;
+        h = h * 0x9E3779B97F4A7C15L + batchIndex;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
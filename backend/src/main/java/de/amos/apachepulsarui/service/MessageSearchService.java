@@ -0,0 +1,144 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.dto.MessageSearchResultDto;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder.TopicDecoder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Searches the payloads of a range of messages on the server, so only the matching messages are sent to the client.
+ * Messages are read in chunks; the messages of a chunk are decoded and matched in parallel while the reader keeps
+ * streaming.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MessageSearchService {
+
+    private final MessageBrowser messageBrowser;
+    private final MessageDecoder messageDecoder;
+
+    /**
+     * How many messages are decoded and matched together.
+     */
+    @Value("${messages.search.chunk-size}")
+    private int chunkSize;
+
+    /**
+     * Upper bound of the messages a single search scans, no matter how large the requested range is.
+     */
+    @Value("${messages.search.max-scan}")
+    private int maxScan;
+
+    /**
+     * Searches the latest numMessages messages of the topic or, given a cursor, the numMessages messages following
+     * the cursor.
+     */
+    public MessageSearchResultDto searchLatest(String topic, PayloadMatcher matcher, String cursor,
+                                               Integer numMessages, Integer maxMatches) {
+        int limit = Math.min(numMessages, maxScan);
+        Scan scan = new Scan(messageDecoder.forTopic(topic), matcher, maxMatches);
+        if (cursor == null) {
+            messageBrowser.streamLatest(topic, limit, scan);
+        } else {
+            messageBrowser.read(topic, MessageCursor.decode(cursor), false, limit, scan);
+        }
+        return scan.finish(topic);
+    }
+
+    /**
+     * Searches up to numMessages messages published within the given time window.
+     */
+    public MessageSearchResultDto searchPublishedBetween(String topic, PayloadMatcher matcher, long from, long to,
+                                                         Integer numMessages, Integer maxMatches) {
+        Scan scan = new Scan(messageDecoder.forTopic(topic), matcher, maxMatches);
+        messageBrowser.readPublishedBetween(topic, from, to, Math.min(numMessages, maxScan), scan);
+        return scan.finish(topic);
+    }
+
+    /**
+     * Collects the scanned messages into chunks and matches every full chunk before accepting the next message.
+     */
+    private class Scan implements Predicate<Message<byte[]>> {
+
+        private final TopicDecoder decoder;
+        private final PayloadMatcher matcher;
+        private final int maxMatches;
+        private final List<Message<byte[]>> chunk = new ArrayList<>();
+        private final List<MessageDto> matches = new ArrayList<>();
+        private long scanned;
+        private MessageId lastScanned;
+
+        private Scan(TopicDecoder decoder, PayloadMatcher matcher, int maxMatches) {
+            if (maxMatches <= 0) {
+                throw new BadRequestException.InvalidSearchLimit("maxMatches must be positive, but is %d.".formatted(maxMatches));
+            }
+            this.decoder = decoder;
+            this.matcher = matcher;
+            this.maxMatches = maxMatches;
+        }
+
+        @Override
+        public boolean test(Message<byte[]> message) {
+            chunk.add(message);
+            return chunk.size() < chunkSize || matchChunk();
+        }
+
+        /**
+         * @return Whether more matches are needed.
+         */
+        private boolean matchChunk() {
+            decoder.resolveSchemas(chunk);
+            String[] payloads = chunk.parallelStream()
+                    .map(decoder::decodePayload)
+                    .toArray(String[]::new);
+            int[] hits = IntStream.range(0, payloads.length)
+                    .parallel()
+                    .filter(i -> matcher.matches(payloads[i]))
+                    .toArray();
+
+            int scannedOfChunk = chunk.size();
+            for (int i : hits) {
+                matches.add(decoder.toMessageDto(chunk.get(i), payloads[i]));
+                if (matches.size() == maxMatches) {
+                    // the rest of the chunk counts as not scanned, so resuming continues right after this match
+                    scannedOfChunk = i + 1;
+                    break;
+                }
+            }
+            scanned += scannedOfChunk;
+            lastScanned = chunk.get(scannedOfChunk - 1).getMessageId();
+            chunk.clear();
+            return matches.size() < maxMatches;
+        }
+
+        private MessageSearchResultDto finish(String topic) {
+            if (!chunk.isEmpty()) {
+                matchChunk();
+            }
+            boolean complete = matches.size() < maxMatches;
+            log.debug("Search in topic '{}' scanned {} messages and found {} matches", topic, scanned, matches.size());
+            return new MessageSearchResultDto(
+                    matches,
+                    scanned,
+                    matches.size(),
+                    complete,
+                    lastScanned == null ? null : MessageCursor.encode(lastScanned)
+            );
+        }
+
+    }
+
+}
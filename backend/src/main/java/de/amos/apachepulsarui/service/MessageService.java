@@ -7,26 +7,92 @@
 package de.amos.apachepulsarui.service;
 
 import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.dto.MessagePageDto;
 import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import de.amos.apachepulsarui.service.decoder.StreamedMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.admin.PulsarAdmin;
 import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.common.api.proto.CommandSubscribe;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class MessageService {
     private final PulsarAdmin pulsarAdmin;
+    private final MessageBrowser messageBrowser;
+    private final PartitionedMessageBrowser partitionedMessageBrowser;
+    private final MessageWindowCache messageWindowCache;
+    private final MessageDecoder messageDecoder;
+
+    /**
+     * Whether messages are browsed through a reader over the binary protocol or examined one by one through the
+     * admin API. The latter only needs the admin API to be reachable.
+     */
+    @Value("${messages.browse.engine}")
+    private BrowseEngine browseEngine;
+
+    /**
+     * How many examine or peek requests may be outstanding against the admin API at the same time while fetching the
+     * latest messages of a topic or filtering them by subscription. A value of 1 falls back to one request after
+     * another.
+     */
+    @Value("${messages.examine.max-in-flight}")
+    private int examineMaxInFlight;
 
     public Set<MessageDto> getLatestMessagesFiltered(String topic, Integer numMessages, List<String> producers, List<String> subscriptions) {
-        Set<MessageDto> messageDtos = getLatestMessagesOfTopic(topic, numMessages);
+        return getLatestMessagesFiltered(topic, numMessages, producers, subscriptions, MessageFilter.NONE);
+    }
+
+    /**
+     * @param messageFilter Filters the latest messages by their metadata before their payloads get decoded.
+     */
+    public Set<MessageDto> getLatestMessagesFiltered(String topic, Integer numMessages, List<String> producers,
+                                                     List<String> subscriptions, MessageFilter messageFilter) {
+        Set<MessageDto> messageDtos = getLatestMessagesOfTopic(topic, numMessages, messageFilter);
+        return filter(messageDtos, topic, numMessages, producers, subscriptions);
+    }
+
+    /**
+     * Reads only the messages published in the given time window by seeking to its start by publish time, instead of
+     * counting back from the latest message.
+     *
+     * @param from        Epoch millis of the earliest publish time to return.
+     * @param to          Epoch millis of the latest publish time to return.
+     * @param maxMessages The maximum amount of messages to read from the window.
+     */
+    public Set<MessageDto> getMessagesPublishedBetweenFiltered(String topic, long from, long to, Integer maxMessages,
+                                                               List<String> producers, List<String> subscriptions) {
+        return getMessagesPublishedBetweenFiltered(topic, from, to, maxMessages, producers, subscriptions, MessageFilter.NONE);
+    }
+
+    public Set<MessageDto> getMessagesPublishedBetweenFiltered(String topic, long from, long to, Integer maxMessages,
+                                                               List<String> producers, List<String> subscriptions,
+                                                               MessageFilter messageFilter) {
+        List<Message<byte[]>> messages = new ArrayList<>();
+        messageBrowser.readPublishedBetween(topic, from, to, maxMessages, message -> {
+            if (messageFilter.matches(message)) {
+                messages.add(message);
+            }
+            return true;
+        });
+        return filter(toSortedMessageDtos(topic, messages), topic, maxMessages, producers, subscriptions);
+    }
+
+    private Set<MessageDto> filter(Set<MessageDto> messageDtos, String topic, Integer numMessages,
+                                   List<String> producers, List<String> subscriptions) {
         if (!producers.isEmpty()) {
             messageDtos = filterByProducers(messageDtos, producers);
         }
@@ -36,25 +102,90 @@ public class MessageService {
         return messageDtos;
     }
 
+    /**
+     * Hands the latest messages of a topic to the sink one by one as soon as they are read, oldest first. Nothing is
+     * buffered, so memory usage does not depend on the amount of messages.
+     *
+     * @param sink Receives the messages, which decode their payloads while being written. Returning false stops reading.
+     */
+    public void streamLatestMessages(String topic, Integer numMessages, List<String> producers, Predicate<StreamedMessage> sink) {
+        var decoder = messageDecoder.forTopic(topic);
+        messageBrowser.streamLatest(topic, numMessages, message -> {
+            if (!producers.isEmpty() && !producers.contains(message.getProducerName())) {
+                return true;
+            }
+            return sink.test(decoder.toStreamedMessage(message));
+        });
+    }
+
+    /**
+     * Browses a topic page by page. Every page costs the same amount of broker work, no matter how far away from the
+     * latest message it is.
+     *
+     * @param cursor    A cursor of a previous page or null to get the latest messages.
+     * @param direction Whether to continue with the messages older or newer than the cursor.
+     */
+    public MessagePageDto getMessagePage(String topic, String cursor, PageDirection direction, Integer pageSize) {
+        List<Message<byte[]>> messages;
+        if (cursor == null) {
+            messages = messageBrowser.readLatest(topic, pageSize);
+        } else {
+            MessageId position = MessageCursor.decode(cursor);
+            messages = switch (direction) {
+                case OLDER -> messageBrowser.readBefore(topic, position, pageSize);
+                case NEWER -> messageBrowser.readAfter(topic, position, pageSize);
+            };
+        }
+
+        if (messages.isEmpty()) {
+            // nothing older will ever show up, but newer messages might arrive later on
+            String newerCursor = direction == PageDirection.NEWER ? cursor : null;
+            return new MessagePageDto(Collections.emptyList(), null, newerCursor);
+        }
+        var decoder = messageDecoder.forTopic(topic);
+        decoder.resolveSchemas(messages);
+        List<MessageDto> messageDtos = messages.stream()
+                .map(decoder::toMessageDto)
+                .collect(Collectors.toCollection(ArrayList::new));
+        // latest message first, like all other message listings
+        Collections.reverse(messageDtos);
+        return new MessagePageDto(
+                messageDtos,
+                MessageCursor.encode(messages.get(0).getMessageId()),
+                MessageCursor.encode(messages.get(messages.size() - 1).getMessageId())
+        );
+    }
+
+    /**
+     * Keeps the messages that are still to be consumed by at least one of the subscriptions. The subscriptions are
+     * peeked concurrently and the peeked positions are collected into a hashed set, so filtering is linear in the
+     * amount of messages.
+     */
     private Set<MessageDto> filterBySubscription(Set<MessageDto> messageDtos, Integer numMessages, String topic, List<String> subscriptions) {
-        List<String> messageIds = subscriptions.stream()
-                .flatMap(s -> peekMessageIds(topic, s, numMessages).stream())
-                .toList();
+        MessagePositionSet peekedPositions = peekMessagePositions(topic, subscriptions, numMessages);
         return messageDtos.stream()
-                .filter(m -> messageIds.contains(m.getMessageId()))
+                .filter(m -> peekedPositions.contains(m.getMessageId()))
                 .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
-    private List<String> peekMessageIds(String topic, String subscription, Integer numMessages) {
+    private MessagePositionSet peekMessagePositions(String topic, List<String> subscriptions, Integer numMessages) {
         try {
-            if (pulsarAdmin.topics().getSubscriptions(topic).contains(subscription)) {
-                return pulsarAdmin.topics().peekMessages(topic, subscription, numMessages).stream()
-                        .map(m -> m.getMessageId().toString())
-                        .toList();
-            }
-            return Collections.emptyList();
+            Set<String> existingSubscriptions = new HashSet<>(pulsarAdmin.topics().getSubscriptions(topic));
+            List<String> peekedSubscriptions = subscriptions.stream()
+                    .distinct()
+                    .filter(existingSubscriptions::contains)
+                    .toList();
+            List<List<Message<byte[]>>> peekedMessages = AsyncFanOut.collectOrdered(
+                    peekedSubscriptions,
+                    examineMaxInFlight,
+                    subscription -> pulsarAdmin.topics().peekMessagesAsync(topic, subscription, numMessages)
+            );
+
+            MessagePositionSet positions = new MessagePositionSet(peekedMessages.stream().mapToInt(List::size).sum());
+            peekedMessages.forEach(messages -> messages.forEach(m -> positions.add(m.getMessageId())));
+            return positions;
         } catch (PulsarAdminException e) {
-            throw new PulsarApiException(String.format("Could not get Messages for subscription %s", subscription), e);
+            throw new PulsarApiException(String.format("Could not get Messages for subscriptions %s", subscriptions), e);
         }
     }
 
@@ -64,26 +195,53 @@ public class MessageService {
                 .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
-    private Set<MessageDto> getLatestMessagesOfTopic(String topic, Integer numMessages) {
-        var schema = getSchemaIfExists(topic);
-        try {
-            var messages = new ArrayList<Message<byte[]>>();
+    /**
+     * Messages of the window cache are decoded already, all others are only decoded if they match the filter.
+     */
+    private Set<MessageDto> getLatestMessagesOfTopic(String topic, Integer numMessages, MessageFilter messageFilter) {
+        return switch (browseEngine) {
+            case READER -> messageWindowCache.getLatest(topic, numMessages)
+                    .map(messageDtos -> messageDtos.stream()
+                            .filter(messageFilter::matches)
+                            .collect(Collectors.<MessageDto, Set<MessageDto>>toCollection(LinkedHashSet::new)))
+                    .orElseGet(() -> toSortedMessageDtos(topic,
+                            filterByMetadata(partitionedMessageBrowser.readLatest(topic, numMessages), messageFilter)));
+            case EXAMINE -> toSortedMessageDtos(topic,
+                    filterByMetadata(examineLatestMessages(topic, numMessages), messageFilter));
+        };
+    }
+
+    private static List<Message<byte[]>> filterByMetadata(List<Message<byte[]>> messages, MessageFilter messageFilter) {
+        if (messageFilter.isEmpty()) {
+            return messages;
+        }
+        return messages.stream()
+                .filter(messageFilter::matches)
+                .toList();
+    }
+
+    private Set<MessageDto> toSortedMessageDtos(String topic, List<Message<byte[]>> messages) {
+        var decoder = messageDecoder.forTopic(topic);
+        decoder.resolveSchemas(messages);
+        return messages.stream()
+                .map(decoder::toMessageDto)
+                // latest message first in set
+                .sorted(Comparator.comparing(MessageDto::getPublishTime, Comparator.reverseOrder()))
+                // linked to keep the order!
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
 
+    private List<Message<byte[]>> examineLatestMessages(String topic, Integer numMessages) {
+        try {
             // ensure that we don't look up more messages than exist
             var producedMessagesUntilNow = pulsarAdmin.topics().getStats(topic).getMsgInCounter();
             var numLookUpMessages = Math.min(producedMessagesUntilNow, numMessages);
 
-            for (int i = 0; i < numLookUpMessages; i++) {
-                messages.add(
-                        pulsarAdmin.topics()
-                                .examineMessage(topic, CommandSubscribe.InitialPosition.Latest.name(), i));
-            }
-            return messages.stream()
-                    .map(message -> MessageDto.fromExistingMessage(message, schema))
-                    // latest message first in set
-                    .sorted(Comparator.comparing(MessageDto::getPublishTime, Comparator.reverseOrder()))
-                    // linked to keep the order!
-                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            return AsyncFanOut.collectOrdered(
+                    LongStream.range(0, numLookUpMessages).boxed().toList(),
+                    examineMaxInFlight,
+                    position -> examineMessageAsync(topic, position)
+            );
         } catch (PulsarAdminException e) {
             throw new PulsarApiException(
                     "Could not examine the amount of '%d' messages for topic '%s'".formatted(numMessages, topic),
@@ -92,11 +250,23 @@ public class MessageService {
         }
     }
 
-    private String getSchemaIfExists(String topic) {
+    private CompletableFuture<Message<byte[]>> examineMessageAsync(String topic, long position) {
         try {
-            return pulsarAdmin.schemas().getSchemaInfo(topic).getSchemaDefinition();
+            return pulsarAdmin.topics()
+                    .examineMessageAsync(topic, CommandSubscribe.InitialPosition.Latest.name(), position);
         } catch (PulsarAdminException e) {
-            return "";
+            return CompletableFuture.failedFuture(e);
         }
     }
+
+    enum BrowseEngine {
+        READER,
+        EXAMINE
+    }
+
+    public enum PageDirection {
+        OLDER,
+        NEWER
+    }
+
 }
@@ -0,0 +1,141 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.amos.apachepulsarui.service.decoder.StreamedMessage;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * Writes messages to a streamed response one at a time, either as newline delimited JSON or as server-sent events.
+ * Every message is flushed right away. The writer stops accepting messages as soon as the client went away or the
+ * byte budget of the response is used up, which in turn stops reading the topic. Payloads are decoded straight into
+ * the frame of their message and embedded as JSON values if they decode to JSON.
+ */
+@Slf4j
+public class MessageStreamWriter implements Predicate<StreamedMessage> {
+
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private final OutputStream output;
+    private final ObjectMapper objectMapper;
+    /**
+     * Holds the frame of the current message until it is known to fit into the byte budget, reused for all messages.
+     */
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    private final Format format;
+    private final long byteBudget;
+    /**
+     * Whether every message is pushed to the client right away. Bulk writers leave flushing to the buffers of the
+     * output instead.
+     */
+    private final boolean flushEachMessage;
+
+    @Getter
+    private long bytesWritten;
+    @Getter
+    private boolean cancelled;
+    @Getter
+    private boolean budgetExhausted;
+
+    public MessageStreamWriter(OutputStream output, ObjectMapper objectMapper, Format format, long byteBudget) {
+        this(output, objectMapper, format, byteBudget, true);
+    }
+
+    public MessageStreamWriter(OutputStream output, ObjectMapper objectMapper, Format format, long byteBudget,
+                               boolean flushEachMessage) {
+        this.output = output;
+        this.objectMapper = objectMapper;
+        this.format = format;
+        this.byteBudget = byteBudget;
+        this.flushEachMessage = flushEachMessage;
+    }
+
+    @Override
+    public boolean test(StreamedMessage message) {
+        if (cancelled || budgetExhausted) {
+            return false;
+        }
+        frame.reset();
+        if (format == Format.SSE) {
+            frame.writeBytes("id: %s\nevent: message\ndata: ".formatted(message.getMessageId()).getBytes(StandardCharsets.UTF_8));
+        }
+        int frameStart = frame.size();
+        try {
+            writeJson(message, true);
+        } catch (IOException | RuntimeException e) {
+            // nothing has been sent yet, write the message again with its raw payload
+            log.debug("Could not decode message {} while streaming, sending its raw payload", message.getMessageId(), e);
+            truncateFrame(frameStart);
+            try {
+                writeJson(message, false);
+            } catch (IOException ioException) {
+                throw new IllegalStateException("Writing JSON to memory failed", ioException);
+            }
+        }
+        frame.writeBytes(format == Format.SSE ? "\n\n".getBytes(StandardCharsets.UTF_8) : NEWLINE);
+
+        if (bytesWritten + frame.size() > byteBudget) {
+            budgetExhausted = true;
+            return false;
+        }
+        try {
+            frame.writeTo(output);
+            if (flushEachMessage) {
+                output.flush();
+            }
+            bytesWritten += frame.size();
+            return true;
+        } catch (IOException e) {
+            log.debug("Client stopped receiving the message stream after {} bytes", bytesWritten, e);
+            cancelled = true;
+            return false;
+        }
+    }
+
+    private void writeJson(StreamedMessage message, boolean decodePayload) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(frame)) {
+            message.writeJson(generator, decodePayload);
+        }
+    }
+
+    private void truncateFrame(int size) {
+        byte[] prefix = frame.toByteArray();
+        frame.reset();
+        frame.write(prefix, 0, size);
+    }
+
+    /**
+     * Tells server-sent event clients why the stream ended, so they don't reconnect to receive the rest.
+     */
+    public void finish() {
+        if (cancelled || format != Format.SSE) {
+            return;
+        }
+        String reason = budgetExhausted ? "byteBudgetExhausted" : "complete";
+        try {
+            output.write("event: end\ndata: {\"reason\":\"%s\"}\n\n".formatted(reason).getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        } catch (IOException e) {
+            cancelled = true;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+        SSE(MediaType.TEXT_EVENT_STREAM);
+
+        private final MediaType mediaType;
+    }
+
+}
@@ -0,0 +1,331 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.api.Reader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the messages arriving on a topic to clients as server-sent events. All clients tailing the same topic share a
+ * single non-durable reader starting at the latest message, and every message is decoded and serialized once for all
+ * of them. Each client has a bounded queue of its own, so a slow client only loses messages and never holds up the
+ * reader or the other clients. The reader is closed as soon as the last client of its topic is gone. Every tailed
+ * topic occupies a reader thread and a broker reader, so only a configured number of topics is tailed at a time.
+ */
+@Service
+@Slf4j
+public class MessageTailService {
+
+    private static final String SUBSCRIPTION_ROLE_PREFIX = "pulsar-ui-tail";
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final PulsarClient pulsarClient;
+    private final MessageDecoder messageDecoder;
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final int sampleRate;
+    private final long maxDurationMillis;
+    private final long heartbeatMillis;
+    private final Map<String, TopicTail> tails = new ConcurrentHashMap<>();
+    private final int maxTopics;
+    /**
+     * One per topic that may be tailed, taken before the reader of a new tail is created and returned once its reader
+     * loop has ended.
+     */
+    private final Semaphore topicPermits;
+    /**
+     * Runs one reader loop per tailed topic, with at most one thread per permit. A loop started right after another
+     * one ended may wait in the queue until the thread of the ended one is free again.
+     */
+    private final ThreadPoolExecutor readers;
+    /**
+     * Drains the queues of the clients, a client only occupies a thread while frames are waiting for it.
+     */
+    private final ExecutorService senders;
+
+    public MessageTailService(PulsarClient pulsarClient,
+                              MessageDecoder messageDecoder,
+                              ObjectMapper objectMapper,
+                              @Value("${messages.tail.queue-capacity}") int queueCapacity,
+                              @Value("${messages.tail.sample-rate}") int sampleRate,
+                              @Value("${messages.tail.max-duration-seconds}") long maxDurationSeconds,
+                              @Value("${messages.tail.heartbeat-seconds}") long heartbeatSeconds,
+                              @Value("${messages.tail.sender-threads}") int senderThreads,
+                              @Value("${messages.tail.max-topics}") int maxTopics) {
+        this.pulsarClient = pulsarClient;
+        this.messageDecoder = messageDecoder;
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.sampleRate = sampleRate;
+        this.maxDurationMillis = TimeUnit.SECONDS.toMillis(maxDurationSeconds);
+        this.heartbeatMillis = TimeUnit.SECONDS.toMillis(heartbeatSeconds);
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), new CustomizableThreadFactory("tail-send-"));
+        this.maxTopics = Math.max(1, maxTopics);
+        this.topicPermits = new Semaphore(this.maxTopics);
+        this.readers = new ThreadPoolExecutor(this.maxTopics, this.maxTopics, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("topic-tail-"));
+        this.readers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts tailing the topic for a new client. The emitter completes once the maximum duration of a tail is over,
+     * event source clients then reconnect on their own.
+     *
+     * @param policy Decides which messages the client misses once it can't keep up.
+     * @throws BadRequestException.TooManyTailedTopics If the topic is not tailed yet and no further topic may be.
+     */
+    public ResponseBodyEmitter tail(String topic, TailPolicy policy) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(maxDurationMillis);
+        TailClient client = new TailClient(topic, emitter, new TailQueue(queueCapacity, policy, sampleRate));
+        emitter.onCompletion(client::detach);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> client.detach());
+        attach(client);
+        return emitter;
+    }
+
+    /**
+     * Joins the running tail of the topic or starts a new one. The reader of a new tail is created before it is
+     * installed, so no other client waits for the broker meanwhile; if another client installed a tail first, the
+     * reader is closed again and the client joins that tail instead.
+     */
+    private void attach(TailClient client) {
+        while (true) {
+            TopicTail tail = tails.get(client.topic);
+            if (tail == null) {
+                if (!topicPermits.tryAcquire()) {
+                    throw new BadRequestException.TooManyTailedTopics(maxTopics);
+                }
+                TopicTail created;
+                try {
+                    created = new TopicTail(client.topic, createReader(client.topic));
+                } catch (RuntimeException e) {
+                    topicPermits.release();
+                    throw e;
+                }
+                created.clients.add(client);
+                if (tails.putIfAbsent(client.topic, created) == null) {
+                    readers.execute(created::run);
+                    return;
+                }
+                closeQuietly(created);
+                topicPermits.release();
+            } else if (tail.stopped) {
+                tails.remove(client.topic, tail);
+            } else if (join(tail, client)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the client joined the tail, false if the tail has been removed meanwhile.
+     */
+    private boolean join(TopicTail tail, TailClient client) {
+        boolean[] joined = new boolean[1];
+        // atomic with detach, which removes the tail together with its last client
+        tails.computeIfPresent(client.topic, (topic, current) -> {
+            if (current == tail && !current.stopped) {
+                current.clients.add(client);
+                joined[0] = true;
+            }
+            return current;
+        });
+        return joined[0];
+    }
+
+    private void detach(TailClient client) {
+        tails.computeIfPresent(client.topic, (topic, tail) -> {
+            tail.clients.remove(client);
+            if (tail.clients.isEmpty()) {
+                tail.stopped = true;
+                return null;
+            }
+            return tail;
+        });
+    }
+
+    private Reader<byte[]> createReader(String topic) {
+        try {
+            return pulsarClient.newReader()
+                    .topic(topic)
+                    .startMessageId(MessageId.latest)
+                    .subscriptionRolePrefix(SUBSCRIPTION_ROLE_PREFIX)
+                    .create();
+        } catch (PulsarClientException e) {
+            throw new PulsarApiException("Could not create a reader to tail topic '%s'".formatted(topic), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        tails.values().forEach(tail -> tail.stopped = true);
+        readers.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    public enum TailPolicy {
+        /**
+         * Gives up on the oldest queued messages, so the client always gets the latest ones.
+         */
+        DROP_OLDEST,
+        /**
+         * Gives up on new messages while the queue is full, so the client gets gapless runs of messages.
+         */
+        DROP_NEWEST,
+        /**
+         * Thins out new messages once the client falls behind, so it keeps seeing messages from all of the time.
+         */
+        SAMPLE
+    }
+
+    private class TopicTail {
+
+        private final String topic;
+        private final Reader<byte[]> reader;
+        private final List<TailClient> clients = new CopyOnWriteArrayList<>();
+        private volatile boolean stopped;
+
+        private TopicTail(String topic, Reader<byte[]> reader) {
+            this.topic = topic;
+            this.reader = reader;
+        }
+
+        private void run() {
+            var decoder = messageDecoder.forTopic(topic);
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            var writer = new MessageStreamWriter(frames, objectMapper, MessageStreamWriter.Format.SSE, Long.MAX_VALUE, false);
+            long lastSent = System.currentTimeMillis();
+            try {
+                while (!stopped) {
+                    Message<byte[]> message = reader.readNext(1, TimeUnit.SECONDS);
+                    if (message != null) {
+                        frames.reset();
+                        writer.test(decoder.toStreamedMessage(message));
+                        byte[] frame = frames.toByteArray();
+                        clients.forEach(client -> client.send(frame));
+                        lastSent = System.currentTimeMillis();
+                    } else if (System.currentTimeMillis() - lastSent >= heartbeatMillis) {
+                        // lets clients that went away on a quiet topic be noticed
+                        clients.forEach(TailClient::heartbeat);
+                        lastSent = System.currentTimeMillis();
+                    }
+                }
+            } catch (PulsarClientException e) {
+                log.warn("Tailing topic '{}' failed, disconnecting its {} clients", topic, clients.size(), e);
+                stopped = true;
+                tails.remove(topic, this);
+                clients.forEach(client -> client.emitter.completeWithError(e));
+            } finally {
+                closeQuietly(this);
+                topicPermits.release();
+            }
+        }
+
+    }
+
+    private static void closeQuietly(TopicTail tail) {
+        try {
+            tail.reader.close();
+        } catch (IOException e) {
+            log.debug("Could not close tail reader of topic '{}'", tail.topic, e);
+        }
+    }
+
+    private class TailClient {
+
+        private final String topic;
+        private final ResponseBodyEmitter emitter;
+        private final TailQueue queue;
+        private boolean draining;
+        private volatile boolean detached;
+
+        private TailClient(String topic, ResponseBodyEmitter emitter, TailQueue queue) {
+            this.topic = topic;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        private synchronized void send(byte[] frame) {
+            if (queue.offer(frame)) {
+                scheduleDrain();
+            }
+        }
+
+        private synchronized void heartbeat() {
+            if (queue.isEmpty()) {
+                queue.offer(HEARTBEAT);
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (!draining && !detached) {
+                draining = true;
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    byte[] frame;
+                    long dropped;
+                    synchronized (this) {
+                        frame = queue.poll();
+                        if (frame == null || detached) {
+                            draining = false;
+                            return;
+                        }
+                        dropped = queue.takeDropped();
+                    }
+                    if (dropped > 0) {
+                        emitter.send("event: dropped\ndata: {\"dropped\":%d}\n\n".formatted(dropped)
+                                .getBytes(StandardCharsets.UTF_8), MediaType.TEXT_EVENT_STREAM);
+                    }
+                    emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away or its tail has been completed meanwhile
+                log.debug("Client tailing topic '{}' is gone", topic, e);
+                synchronized (this) {
+                    draining = false;
+                }
+                detach();
+            }
+        }
+
+        private void detach() {
+            detached = true;
+            MessageTailService.this.detach(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+package de.amos.apachepulsarui.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers a rolling window of the latest decoded messages per topic for clients polling the latest messages. A
+ * poll first compares the message counter of the topic with the one seen last time: on an idle topic that single
+ * stats call is all it costs, otherwise only the messages newer than the newest one in the window are read and
+ * decoded, and the oldest ones are evicted from the window.
+ */
+@Component
+@Slf4j
+public class MessageWindowCache {
+
+    public static final String CACHE_NAME = "messages.windows";
+
+    private final PulsarAdmin pulsarAdmin;
+    private final MessageBrowser messageBrowser;
+    private final PartitionedMessageBrowser partitionedMessageBrowser;
+    private final MessageDecoder messageDecoder;
+    private final int capacity;
+    private final Cache<String, TopicWindow> windows;
+
+    @SuppressWarnings("unchecked")
+    public MessageWindowCache(PulsarAdmin pulsarAdmin,
+                              MessageBrowser messageBrowser,
+                              PartitionedMessageBrowser partitionedMessageBrowser,
+                              MessageDecoder messageDecoder,
+                              CaffeineCacheManager cacheManager,
+                              @Value("${messages.window.capacity}") int capacity,
+                              @Value("${messages.window.max-topics}") long maxTopics,
+                              @Value("${messages.window.idle-timeout-seconds}") long idleTimeoutSeconds) {
+        this.pulsarAdmin = pulsarAdmin;
+        this.messageBrowser = messageBrowser;
+        this.partitionedMessageBrowser = partitionedMessageBrowser;
+        this.messageDecoder = messageDecoder;
+        this.capacity = capacity;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maxTopics)
+                .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        cacheManager.registerCustomCache(CACHE_NAME, (Cache<Object, Object>) (Cache<?, ?>) windows);
+    }
+
+    /**
+     * @return The latest messages of the topic, latest first, or an empty optional if the window can't serve them
+     * because more messages are requested than it holds or because the topic is partitioned.
+     */
+    public Optional<List<MessageDto>> getLatest(String topic, int numMessages) {
+        if (numMessages > capacity) {
+            return Optional.empty();
+        }
+        TopicWindow window = windows.get(topic, t -> new TopicWindow(t, partitionedMessageBrowser.isPartitioned(t)));
+        if (window.partitioned) {
+            return Optional.empty();
+        }
+        return Optional.of(window.latest(numMessages));
+    }
+
+    private long getMsgInCounter(String topic) {
+        try {
+            return pulsarAdmin.topics().getStats(topic).getMsgInCounter();
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not fetch the stats of topic '%s'".formatted(topic), e);
+        }
+    }
+
+    private class TopicWindow {
+
+        private final String topic;
+        private final boolean partitioned;
+        /**
+         * Ring buffer of the decoded messages, oldest first.
+         */
+        private final ArrayDeque<MessageDto> messages = new ArrayDeque<>();
+        private MessageId newestMessageId;
+        private long msgInCounter = -1;
+        /**
+         * Whether the window holds all messages of the topic, because the topic held fewer than requested.
+         */
+        private boolean holdsAll;
+
+        private TopicWindow(String topic, boolean partitioned) {
+            this.topic = topic;
+            this.partitioned = partitioned;
+        }
+
+        private synchronized List<MessageDto> latest(int numMessages) {
+            long currentMsgInCounter = getMsgInCounter(topic);
+            long newMessages = currentMsgInCounter - msgInCounter;
+            boolean appendable = msgInCounter >= 0 && newestMessageId != null && newMessages >= 0 && newMessages <= capacity;
+            if (appendable && newMessages > 0) {
+                append(messageBrowser.readAfter(topic, newestMessageId, (int) newMessages));
+                msgInCounter = currentMsgInCounter;
+            }
+            if (!appendable || (messages.size() < numMessages && !holdsAll)) {
+                reload(numMessages, currentMsgInCounter);
+            }
+            return newest(numMessages);
+        }
+
+        private void reload(int numMessages, long currentMsgInCounter) {
+            int windowSize = Math.min(capacity, Math.max(numMessages, messages.size()));
+            log.debug("Reloading the latest {} messages of topic '{}'", windowSize, topic);
+            List<Message<byte[]>> latest = messageBrowser.readLatest(topic, windowSize);
+            messages.clear();
+            newestMessageId = null;
+            holdsAll = latest.size() < windowSize;
+            append(latest);
+            msgInCounter = currentMsgInCounter;
+        }
+
+        /**
+         * @param newer Messages newer than all messages of the window, oldest first.
+         */
+        private void append(List<Message<byte[]>> newer) {
+            if (newer.isEmpty()) {
+                return;
+            }
+            var decoder = messageDecoder.forTopic(topic);
+            decoder.resolveSchemas(newer);
+            for (Message<byte[]> message : newer) {
+                if (messages.size() == capacity) {
+                    messages.pollFirst();
+                    holdsAll = false;
+                }
+                messages.addLast(decoder.toMessageDto(message));
+            }
+            newestMessageId = newer.get(newer.size() - 1).getMessageId();
+        }
+
+        private List<MessageDto> newest(int numMessages) {
+            List<MessageDto> newest = new ArrayList<>(Math.min(numMessages, messages.size()));
+            Iterator<MessageDto> iterator = messages.descendingIterator();
+            while (newest.size() < numMessages && iterator.hasNext()) {
+                newest.add(iterator.next());
+            }
+            return newest;
+        }
+
+    }
+
+}
@@ -8,6 +8,7 @@ package de.amos.apachepulsarui.service;
 import de.amos.apachepulsarui.dto.NamespaceDetailDto;
 import de.amos.apachepulsarui.dto.NamespaceDto;
 import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.Topology.NamespaceNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.admin.Namespaces;
@@ -28,23 +29,31 @@ public class NamespaceService {
 
     private final TopicService topicService;
 
+    private final TopologySnapshot topologySnapshot;
+
     public List<String> getNamespaceNamesForTenants(List<String> tenants) {
         return tenants.stream()
                 .flatMap(tenantName -> getAllOfTenant(tenantName).stream())
                 .toList();
     }
 
+    /**
+     * @return The namespaces out of the given ones that exist.
+     */
     public List<NamespaceDto> getAllForNamespaces(List<String> namespaces) {
+        Topology topology = topologySnapshot.get();
         return namespaces.stream()
-                .map(NamespaceDto::fromString)
-                .map(this::enrichWithCardDetails).toList();
+                .flatMap(namespace -> topology.getNamespace(namespace).stream())
+                .map(this::toNamespaceDto)
+                .toList();
     }
 
     public List<NamespaceDto> getAllForTenants(List<String> tenants) {
+        Topology topology = topologySnapshot.get();
         return tenants.stream()
-                .flatMap(tenantName -> getAllOfTenant(tenantName).stream())
-                .map(NamespaceDto::fromString)
-                .map(this::enrichWithCardDetails)
+                .flatMap(tenantName -> topology.getTenant(tenantName).stream())
+                .flatMap(tenant -> tenant.namespaces().values().stream())
+                .map(this::toNamespaceDto)
                 .toList();
     }
 
@@ -68,17 +77,18 @@ public class NamespaceService {
         }
     }
 
-    @Cacheable("namespace.allNames")
+    /**
+     * @return The namespaces of the tenant, none if the tenant does not exist.
+     */
     public List<String> getAllOfTenant(String tenantName) throws PulsarApiException {
-        try {
-            return pulsarAdmin.namespaces().getNamespaces(tenantName);
-        } catch (PulsarAdminException e) {
-            throw new PulsarApiException("Could not fetch namespaces of tenant '%s'".formatted(tenantName), e);
-        }
+        return topologySnapshot.get().getTenant(tenantName)
+                .map(tenant -> List.copyOf(tenant.namespaces().keySet()))
+                .orElse(List.of());
     }
 
-    private NamespaceDto enrichWithCardDetails(NamespaceDto namespace) {
-            namespace.setNumberOfTopics(topicService.getAllForNamespace(namespace.getId()).size());
-            return namespace;
+    private NamespaceDto toNamespaceDto(NamespaceNode namespace) {
+        NamespaceDto namespaceDto = NamespaceDto.fromString(namespace.name());
+        namespaceDto.setNumberOfTopics(namespace.topics().size());
+        return namespaceDto;
     }
 }
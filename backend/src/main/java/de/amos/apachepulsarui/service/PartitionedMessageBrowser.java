@@ -0,0 +1,182 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.common.naming.TopicName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Browses partitioned topics as a single stream of messages. The latest messages of all partitions are read
+ * concurrently and merged by publish time, so the result is the same as if the topic had a single partition. Each
+ * partition is only asked for its share of the requested messages up front; partitions that turn out to hold more of
+ * the latest messages than others are read further on demand while merging.
+ */
+@Service
+@Slf4j
+public class PartitionedMessageBrowser {
+
+    private static final Comparator<PartitionCursor> LATEST_FIRST =
+            Comparator.comparingLong((PartitionCursor cursor) -> cursor.peek().getPublishTime()).reversed();
+
+    private final PulsarAdmin pulsarAdmin;
+    private final MessageBrowser messageBrowser;
+    private final ExecutorService partitionReads;
+
+    public PartitionedMessageBrowser(PulsarAdmin pulsarAdmin,
+                                     MessageBrowser messageBrowser,
+                                     @Value("${messages.partitions.max-parallel-reads}") int maxParallelReads) {
+        this.pulsarAdmin = pulsarAdmin;
+        this.messageBrowser = messageBrowser;
+        this.partitionReads = Executors.newFixedThreadPool(
+                Math.max(1, maxParallelReads),
+                new CustomizableThreadFactory("partition-read-")
+        );
+    }
+
+    /**
+     * @return The latest messages of the topic across all of its partitions, oldest first. Non-partitioned topics
+     * are read directly.
+     */
+    public List<Message<byte[]>> readLatest(String topic, int numMessages) {
+        int partitions = getPartitions(topic);
+        if (partitions == 0 || numMessages <= 0) {
+            return messageBrowser.readLatest(topic, numMessages);
+        }
+
+        int share = Math.max(1, (numMessages + partitions - 1) / partitions);
+        PriorityQueue<PartitionCursor> cursors = new PriorityQueue<>(partitions, LATEST_FIRST);
+        for (PartitionCursor cursor : readConcurrently(topic, partitions, share)) {
+            if (cursor.hasNext()) {
+                cursors.add(cursor);
+            }
+        }
+
+        List<Message<byte[]>> merged = new ArrayList<>(numMessages);
+        while (merged.size() < numMessages && !cursors.isEmpty()) {
+            PartitionCursor cursor = cursors.poll();
+            merged.add(cursor.next());
+            if (!cursor.hasNext()) {
+                cursor.readOlder(numMessages - merged.size());
+            }
+            if (cursor.hasNext()) {
+                cursors.add(cursor);
+            }
+        }
+        Collections.reverse(merged);
+        return merged;
+    }
+
+    public boolean isPartitioned(String topic) {
+        return getPartitions(topic) > 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitionReads.shutdownNow();
+    }
+
+    private List<PartitionCursor> readConcurrently(String topic, int partitions, int share) {
+        TopicName topicName = TopicName.get(topic);
+        List<CompletableFuture<PartitionCursor>> reads = IntStream.range(0, partitions)
+                .mapToObj(i -> topicName.getPartition(i).toString())
+                .map(partition -> CompletableFuture.supplyAsync(() -> {
+                    PartitionCursor cursor = new PartitionCursor(partition);
+                    cursor.add(messageBrowser.readLatest(partition, share), share);
+                    return cursor;
+                }, partitionReads))
+                .toList();
+        try {
+            return reads.stream()
+                    .map(CompletableFuture::join)
+                    .toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private int getPartitions(String topic) {
+        try {
+            return pulsarAdmin.topics().getPartitionedTopicMetadata(topic).partitions;
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not fetch the partitions of topic '%s'".formatted(topic), e);
+        }
+    }
+
+    /**
+     * The messages read from one partition so far, latest first. Not thread-safe, only the reads initially filling it
+     * run in parallel.
+     */
+    private class PartitionCursor {
+
+        private final String partition;
+        private final ArrayDeque<Message<byte[]>> messages = new ArrayDeque<>();
+        private Message<byte[]> oldestRead;
+        private boolean exhausted;
+
+        private PartitionCursor(String partition) {
+            this.partition = partition;
+        }
+
+        private boolean hasNext() {
+            return !messages.isEmpty();
+        }
+
+        private Message<byte[]> peek() {
+            return messages.peekFirst();
+        }
+
+        private Message<byte[]> next() {
+            return messages.pollFirst();
+        }
+
+        /**
+         * Reads the messages in front of the oldest message read so far.
+         *
+         * @param numMessages The most messages this partition could still contribute.
+         */
+        private void readOlder(int numMessages) {
+            if (exhausted || numMessages <= 0 || oldestRead == null) {
+                return;
+            }
+            log.debug("Reading {} older messages of partition '{}'", numMessages, partition);
+            add(messageBrowser.readBefore(partition, oldestRead.getMessageId(), numMessages), numMessages);
+        }
+
+        /**
+         * @param oldestFirst The messages read, oldest first.
+         * @param requested   The amount of messages that were requested; fewer mean the partition has no older ones.
+         */
+        private void add(List<Message<byte[]>> oldestFirst, int requested) {
+            exhausted = oldestFirst.size() < requested;
+            if (!oldestFirst.isEmpty()) {
+                oldestRead = oldestFirst.get(0);
+            }
+            for (int i = oldestFirst.size() - 1; i >= 0; i--) {
+                messages.addLast(oldestFirst.get(i));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides whether a decoded message payload matches a search query. Implementations are safe to use from multiple
+ * threads at once.
+ */
+@FunctionalInterface
+public interface PayloadMatcher {
+
+    boolean matches(String payload);
+
+    /**
+     * @param field              Path of the field to compare for mode FIELD, either as JSON pointer (/ship/name) or
+     *                           dotted (ship.name or $.ship.name).
+     * @param regexTimeoutMillis How long mode REGEX may take to match a single payload before the search fails, 0
+     *                           for no limit.
+     * @throws BadRequestException.InvalidSearchQuery If the query or field can't be used with the mode.
+     */
+    static PayloadMatcher create(Mode mode, String query, String field, long regexTimeoutMillis, ObjectMapper objectMapper) {
+        if (StringUtils.isEmpty(query)) {
+            throw new BadRequestException.InvalidSearchQuery("Search query must not be empty.");
+        }
+        return switch (mode) {
+            case SUBSTRING -> payload -> payload.contains(query);
+            case REGEX -> regex(query, regexTimeoutMillis);
+            case FIELD -> field(toPointer(field), query, objectMapper);
+        };
+    }
+
+    /**
+     * User supplied expressions might backtrack catastrophically, so matching a payload fails the search once it
+     * takes longer than the timeout.
+     */
+    private static PayloadMatcher regex(String query, long timeoutMillis) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(query);
+        } catch (PatternSyntaxException e) {
+            throw new BadRequestException.InvalidSearchQuery("Search query is no valid regular expression.");
+        }
+        if (timeoutMillis <= 0) {
+            return payload -> pattern.matcher(payload).find();
+        }
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        return payload -> {
+            try {
+                return pattern.matcher(new DeadlineCharSequence(payload, System.nanoTime() + timeoutNanos)).find();
+            } catch (DeadlineCharSequence.DeadlineExceeded e) {
+                throw new BadRequestException.InvalidSearchQuery(
+                        "Search query took longer than %d ms to match a single payload.".formatted(timeoutMillis));
+            }
+        };
+    }
+
+    private static PayloadMatcher field(JsonPointer pointer, String query, ObjectMapper objectMapper) {
+        return payload -> {
+            try {
+                JsonNode value = unwrapUnion(objectMapper.readTree(payload).at(pointer));
+                if (value.isMissingNode() || value.isNull()) {
+                    return false;
+                }
+                return value.isValueNode() ? value.asText().equals(query) : value.toString().equals(query);
+            } catch (IOException e) {
+                // payloads that are no JSON don't have fields
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Avro's JSON encoding wraps values of union fields in an object named after the type, e.g. {"string": "x"}.
+     */
+    private static JsonNode unwrapUnion(JsonNode node) {
+        if (node.isObject() && node.size() == 1) {
+            JsonNode value = node.elements().next();
+            if (value.isValueNode()) {
+                return value;
+            }
+        }
+        return node;
+    }
+
+    private static JsonPointer toPointer(String field) {
+        if (StringUtils.isEmpty(field)) {
+            throw new BadRequestException.InvalidSearchQuery("Searching with mode FIELD needs a field.");
+        }
+        String path = field.startsWith("/")
+                ? field
+                : "/" + StringUtils.removeStart(field, "$.").replace('.', '/');
+        try {
+            return JsonPointer.compile(path);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException.InvalidSearchQuery("Search field is no valid field path.");
+        }
+    }
+
+    public enum Mode {
+        SUBSTRING,
+        REGEX,
+        FIELD
+    }
+
+}
@@ -0,0 +1,185 @@
+package de.amos.apachepulsarui.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.api.Reader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps non-durable readers per topic so that browsing a topic does not have to set up a new reader (and with it a
+ * new broker-side cursor) for every request. Readers are handed out exclusively and repositioned by the caller.
+ * Idle readers of a topic are closed once the topic has not been browsed for a while, on a schedule of their own, so
+ * their broker-side cursors don't outlive the idle timeout just because no further request comes in.
+ * <p>
+ * Readers are taken from and handed back to the idle readers of a topic atomically with respect to their eviction, so
+ * a reader released while the topic's idle readers are being evicted ends up in a fresh entry instead of a queue
+ * nobody is going to close anymore.
+ */
+@Component
+@Slf4j
+public class ReaderPool {
+
+    private static final String SUBSCRIPTION_ROLE_PREFIX = "pulsar-ui-browser";
+
+    private final PulsarClient pulsarClient;
+    private final int maxIdlePerTopic;
+    private final int receiverQueueSize;
+    private final Cache<String, Queue<Reader<byte[]>>> idleReaders;
+
+    @Autowired
+    public ReaderPool(PulsarClient pulsarClient,
+                      @Value("${messages.reader.pool.max-idle-per-topic}") int maxIdlePerTopic,
+                      @Value("${messages.reader.pool.idle-timeout-seconds}") long idleTimeoutSeconds,
+                      @Value("${messages.reader.receiver-queue-size}") int receiverQueueSize) {
+        this(pulsarClient, maxIdlePerTopic, idleTimeoutSeconds, receiverQueueSize, Ticker.systemTicker(),
+                Scheduler.systemScheduler());
+    }
+
+    ReaderPool(PulsarClient pulsarClient, int maxIdlePerTopic, long idleTimeoutSeconds, int receiverQueueSize,
+               Ticker ticker, Scheduler scheduler) {
+        this.pulsarClient = pulsarClient;
+        this.maxIdlePerTopic = maxIdlePerTopic;
+        this.receiverQueueSize = receiverQueueSize;
+        this.idleReaders = Caffeine.newBuilder()
+                .ticker(ticker)
+                .scheduler(scheduler)
+                .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)
+                .removalListener((String topic, Queue<Reader<byte[]>> readers, RemovalCause cause) -> {
+                    if (readers != null) {
+                        readers.forEach(ReaderPool::closeQuietly);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Hands out a reader for the topic, reusing an idle one if available. The reader is positioned wherever its
+     * previous user left it, so callers have to seek before reading.
+     */
+    public PooledReader acquire(String topic) {
+        Reader<byte[]> reader = takeIdleReader(topic);
+        if (reader == null || !reader.isConnected()) {
+            closeQuietly(reader);
+            reader = createReader(topic);
+        }
+        return new PooledReader(topic, reader);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        idleReaders.invalidateAll();
+        idleReaders.cleanUp();
+    }
+
+    /**
+     * Removes the reader from the idle readers while their entry can't be evicted, so it is never closed by the
+     * eviction after being handed out.
+     */
+    private Reader<byte[]> takeIdleReader(String topic) {
+        List<Reader<byte[]>> taken = new ArrayList<>(1);
+        idleReaders.asMap().computeIfPresent(topic, (t, readers) -> {
+            Reader<byte[]> reader = readers.poll();
+            if (reader != null) {
+                taken.add(reader);
+            }
+            return readers;
+        });
+        return taken.isEmpty() ? null : taken.get(0);
+    }
+
+    /**
+     * Adds the reader to the idle readers while their entry can't be evicted. A reader released after the entry of
+     * its topic was evicted goes into a new entry, which is closed by the next eviction again.
+     */
+    private void release(String topic, Reader<byte[]> reader) {
+        boolean[] pooled = new boolean[1];
+        idleReaders.asMap().compute(topic, (t, readers) -> {
+            Queue<Reader<byte[]>> idle = readers != null ? readers : new ConcurrentLinkedQueue<>();
+            if (idle.size() < maxIdlePerTopic) {
+                idle.offer(reader);
+                pooled[0] = true;
+            }
+            return idle;
+        });
+        if (!pooled[0]) {
+            closeQuietly(reader);
+        }
+    }
+
+    private Reader<byte[]> createReader(String topic) {
+        try {
+            return pulsarClient.newReader()
+                    .topic(topic)
+                    .startMessageId(MessageId.latest)
+                    .startMessageIdInclusive()
+                    .receiverQueueSize(receiverQueueSize)
+                    .subscriptionRolePrefix(SUBSCRIPTION_ROLE_PREFIX)
+                    .create();
+        } catch (PulsarClientException e) {
+            throw new PulsarApiException("Could not create a reader for topic '%s'".formatted(topic), e);
+        }
+    }
+
+    private static void closeQuietly(Reader<byte[]> reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (Exception e) {
+            log.debug("Could not close reader of topic '{}'", reader.getTopic(), e);
+        }
+    }
+
+    /**
+     * A reader borrowed from the pool. Closing it hands the reader back, unless it was invalidated because it ran
+     * into an error and can't be trusted to be in a usable state anymore.
+     */
+    public class PooledReader implements AutoCloseable {
+
+        private final String topic;
+        private final Reader<byte[]> reader;
+        private boolean invalidated;
+
+        private PooledReader(String topic, Reader<byte[]> reader) {
+            this.topic = topic;
+            this.reader = reader;
+        }
+
+        public Reader<byte[]> reader() {
+            return reader;
+        }
+
+        public void invalidate() {
+            invalidated = true;
+        }
+
+        @Override
+        public void close() {
+            if (invalidated) {
+                closeQuietly(reader);
+            } else {
+                release(topic, reader);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package de.amos.apachepulsarui.service;
+
+import java.util.Arrays;
+
+/**
+ * Counts events per second of epoch time in primitive arrays with open addressing, so messages of a range can be
+ * counted in any order, e.g. partition after partition, without boxing a counter per message.
+ */
+final class SecondCounter {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] seconds;
+    private long[] counts;
+    private int size;
+
+    SecondCounter() {
+        allocate(1024);
+    }
+
+    void increment(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        int slot = slotOf(seconds, second);
+        if (seconds[slot] == FREE) {
+            if (size + 1 > seconds.length / 2) {
+                grow();
+                slot = slotOf(seconds, second);
+            }
+            seconds[slot] = second;
+            size++;
+        }
+        counts[slot]++;
+    }
+
+    /**
+     * @return The amount of seconds with at least one event.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The second with the most events or null if nothing has been counted. Of equally busy seconds the
+     * earliest one is returned.
+     */
+    Long busiestSecond() {
+        Long busiest = null;
+        long busiestCount = 0;
+        for (int slot = 0; slot < seconds.length; slot++) {
+            if (seconds[slot] == FREE) {
+                continue;
+            }
+            if (counts[slot] > busiestCount || (counts[slot] == busiestCount && seconds[slot] < busiest)) {
+                busiest = seconds[slot];
+                busiestCount = counts[slot];
+            }
+        }
+        return busiest;
+    }
+
+    long countOf(long second) {
+        int slot = slotOf(seconds, second);
+        return seconds[slot] == FREE ? 0 : counts[slot];
+    }
+
+    private void grow() {
+        long[] oldSeconds = seconds;
+        long[] oldCounts = counts;
+        allocate(oldSeconds.length * 2);
+        for (int slot = 0; slot < oldSeconds.length; slot++) {
+            if (oldSeconds[slot] != FREE) {
+                int newSlot = slotOf(seconds, oldSeconds[slot]);
+                seconds[newSlot] = oldSeconds[slot];
+                counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        seconds = new long[capacity];
+        counts = new long[capacity];
+        Arrays.fill(seconds, FREE);
+    }
+
+    private static int slotOf(long[] seconds, long second) {
+        int mask = seconds.length - 1;
+        int slot = (int) (second * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (seconds[slot] != FREE && seconds[slot] != second) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+}
@@ -0,0 +1,79 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.service.MessageTailService.TailPolicy;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded queue of the frames waiting to be sent to a single tailing client. Once the client falls behind, the
+ * policy decides which frames are given up on instead of letting the queue grow. Not thread safe.
+ */
+class TailQueue {
+
+    private final ArrayDeque<byte[]> frames;
+    private final int capacity;
+    private final TailPolicy policy;
+    private final int sampleRate;
+
+    private long offered;
+    private long dropped;
+
+    TailQueue(int capacity, TailPolicy policy, int sampleRate) {
+        this.capacity = Math.max(1, capacity);
+        this.frames = new ArrayDeque<>(this.capacity);
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * @return Whether the frame was queued.
+     */
+    boolean offer(byte[] frame) {
+        offered++;
+        switch (policy) {
+            case DROP_OLDEST -> {
+                if (frames.size() == capacity) {
+                    frames.pollFirst();
+                    dropped++;
+                }
+            }
+            case DROP_NEWEST -> {
+                if (frames.size() == capacity) {
+                    dropped++;
+                    return false;
+                }
+            }
+            case SAMPLE -> {
+                // from half full on only every sampleRate-th frame is kept, which usually lets the client catch up
+                boolean behind = frames.size() >= capacity / 2;
+                if (frames.size() == capacity || (behind && offered % sampleRate != 0)) {
+                    dropped++;
+                    return false;
+                }
+            }
+        }
+        frames.addLast(frame);
+        return true;
+    }
+
+    /**
+     * @return The oldest queued frame or null if the queue is empty.
+     */
+    byte[] poll() {
+        return frames.pollFirst();
+    }
+
+    boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    /**
+     * @return The amount of frames dropped since the previous call.
+     */
+    long takeDropped() {
+        long taken = dropped;
+        dropped = 0;
+        return taken;
+    }
+
+}
@@ -3,6 +3,7 @@ package de.amos.apachepulsarui.service;
 import de.amos.apachepulsarui.dto.TenantDetailDto;
 import de.amos.apachepulsarui.dto.TenantDto;
 import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.Topology.TenantNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.admin.PulsarAdmin;
@@ -20,37 +21,17 @@ public class TenantService {
 
     private final PulsarAdmin pulsarAdmin;
     private final NamespaceService namespaceService;
-    private final TopicService topicService;
+    private final TopologySnapshot topologySnapshot;
 
-    @Cacheable("tenants.allNames")
     public List<String> getAllNames() throws PulsarApiException {
-        try {
-            return pulsarAdmin.tenants().getTenants();
-        } catch (PulsarAdminException e) {
-            throw new PulsarApiException("Could not get a list of all tenants", e);
-        }
+        return List.copyOf(topologySnapshot.get().tenants().keySet());
     }
 
-    @Cacheable("tenants.allFiltered")
     public List<TenantDto> getAllFiltered(List<String> tenants) throws PulsarApiException {
-        try {
-            List<String> tenantNames = pulsarAdmin.tenants().getTenants();
-            if (tenants.isEmpty()) {
-                return tenantNames.stream()
-                        .map(name -> TenantDto.create(getTenantInfo(name), name))
-                        .map(this::enrichWithCardDetails)
-                        .toList();
-            }
-
-            return tenantNames.stream()
-                    .filter(tenants::contains)
-                    .map(name -> TenantDto.create(getTenantInfo(name), name))
-                    .map(this::enrichWithCardDetails)
-                    .toList();
-
-        } catch (PulsarAdminException e) {
-            throw new PulsarApiException("Could not get a list of all tenants.", e);
-        }
+        return topologySnapshot.get().getTenants().stream()
+                .filter(tenant -> tenants.isEmpty() || tenants.contains(tenant.name()))
+                .map(this::toTenantDto)
+                .toList();
     }
 
     @Cacheable("tenant.detail")
@@ -71,19 +52,10 @@ public class TenantService {
         }
     }
 
-    private TenantDto enrichWithCardDetails(TenantDto tenantDto) {
-        try {
-            List<String> namespaces = pulsarAdmin.namespaces().getNamespaces(tenantDto.getName());
-            long numberOfTopics = namespaces.stream()
-                    .mapToLong(n -> topicService.getAllForNamespace(n).size())
-                    .sum();
-            tenantDto.setNumberOfTopics(numberOfTopics);
-            tenantDto.setNumberOfNamespaces(namespaces.size());
-            return tenantDto;
-        } catch (PulsarAdminException e) {
-            throw new PulsarApiException(
-                    "Could not fetch tenant data of tenant '%s'".formatted(tenantDto.getName()), e
-            );
-        }
+    private TenantDto toTenantDto(TenantNode tenant) {
+        TenantDto tenantDto = TenantDto.create(tenant.info(), tenant.name());
+        tenantDto.setNumberOfNamespaces(tenant.namespaces().size());
+        tenantDto.setNumberOfTopics(tenant.numberOfTopics());
+        return tenantDto;
     }
 }
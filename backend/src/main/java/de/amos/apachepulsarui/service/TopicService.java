@@ -15,10 +15,16 @@ import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.TopicStats;
 import org.apache.pulsar.common.schema.SchemaInfo;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -26,21 +32,87 @@ import java.util.List;
 public class TopicService {
 
     private final PulsarAdmin pulsarAdmin;
+    private final TopicStatsCollector topicStatsCollector;
+    private final TopologySnapshot topologySnapshot;
 
-    @Cacheable("topics.allForTopics")
+    /**
+     * How many stats requests may be outstanding against the admin API at the same time while listing
+     * topics. A value of 1 falls back to one request after another.
+     */
+    @Value("${topics.stats.max-in-flight}")
+    private int statsMaxInFlight;
+
+    /**
+     * How long a topic listing waits for the stats of its topics. Topics whose stats did not arrive in time are listed
+     * without them. A value of 0 waits as long as it takes.
+     */
+    @Value("${topics.stats.timeout-millis}")
+    private long statsTimeoutMillis;
+
+    /**
+     * Checks every topic against the topic set of its namespace in the topology snapshot, which costs no admin calls.
+     * The snapshot is up to topology.refresh.interval-millis old though, so topics missing from it are checked against
+     * the current topic lists of their namespaces, fetching each namespace only once.
+     *
+     * @return The topics out of the given ones that exist.
+     */
     public List<TopicDto> getAllForTopics(List<String> topics) {
-        return topics.stream()
-                .filter(this::exists)
-                .map(topic -> TopicDto.create(topic, getTopicStats(topic)))
-                .toList();
+        Topology topology = topologySnapshot.get();
+        Map<String, Set<String>> currentTopicsByNamespace = new HashMap<>();
+        return getAllWithStats(topics.stream()
+                .filter(topic -> exists(topology, topic) || exists(currentTopicsByNamespace, topic))
+                .toList());
     }
 
-    @Cacheable("topics.allForNamespace")
     public List<TopicDto> getAllForNamespaces(List<String> namespaces) {
-        return namespaces.stream()
-                .map(this::getAllForNamespace)
-                .flatMap(topics -> getAllForTopics(topics).stream())
+        Topology topology = topologySnapshot.get();
+        return getAllWithStats(namespaces.stream()
+                .flatMap(namespace -> topology.getNamespace(namespace).stream())
+                .flatMap(namespace -> namespace.topics().stream())
+                .toList());
+    }
+
+    /**
+     * Takes the stats of the topics from the bulk stats of the brokers. Topics the brokers did not report yet get
+     * their stats fetched concurrently, so the listing takes about as long as the slowest batch of requests instead of
+     * the sum of all of them.
+     */
+    private List<TopicDto> getAllWithStats(List<String> topics) {
+        Map<String, TopicStats> stats = new HashMap<>(topicStatsCollector.findAll(topics));
+        List<String> missing = topics.stream()
+                .filter(topic -> !stats.containsKey(topic))
                 .toList();
+        try {
+            List<TopicStats> fetched = AsyncFanOut.collectOrdered(
+                    missing,
+                    statsMaxInFlight,
+                    statsTimeoutMillis,
+                    topic -> pulsarAdmin.topics().getStatsAsync(topic)
+            );
+            for (int i = 0; i < missing.size(); i++) {
+                if (fetched.get(i) != null) {
+                    stats.put(missing.get(i), fetched.get(i));
+                }
+            }
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not fetch topic stats for %d topics".formatted(missing.size()), e);
+        }
+
+        List<TopicDto> topicDtos = new ArrayList<>(topics.size());
+        int timedOut = 0;
+        for (String topic : topics) {
+            TopicStats topicStats = stats.get(topic);
+            if (topicStats == null) {
+                topicDtos.add(TopicDto.createWithoutStats(topic));
+                timedOut++;
+            } else {
+                topicDtos.add(TopicDto.create(topic, topicStats));
+            }
+        }
+        if (timedOut > 0) {
+            log.warn("Stats of {} out of {} topics did not arrive within {} ms", timedOut, topics.size(), statsTimeoutMillis);
+        }
+        return topicDtos;
     }
 
     @Cacheable("topics.detail")
@@ -120,15 +192,30 @@ public class TopicService {
         return ConsumerDto.create(topicStats, consumer);
     }
 
-    private boolean exists(String topic) {
+    private static boolean exists(Topology topology, String topic) {
+        TopicName topicName = TopicName.get(topic);
+        return topology.getNamespace(topicName.getNamespace())
+                .map(namespace -> namespace.topics().contains(topicName.toString()))
+                .orElse(false);
+    }
+
+    /**
+     * @param topicsByNamespace The topic lists fetched so far, extended by the namespace of the topic if missing.
+     */
+    private boolean exists(Map<String, Set<String>> topicsByNamespace, String topic) {
         TopicName topicName = TopicName.get(topic);
+        return topicsByNamespace
+                .computeIfAbsent(topicName.getNamespace(), this::getTopicSet)
+                .contains(topicName.toString());
+    }
+
+    private Set<String> getTopicSet(String namespace) {
         try {
-            return pulsarAdmin.topics().getList(topicName.getNamespace()).contains(topicName.toString());
+            return new HashSet<>(pulsarAdmin.topics().getList(namespace));
+        } catch (PulsarAdminException.NotFoundException e) {
+            return Set.of();
         } catch (PulsarAdminException e) {
-            throw new PulsarApiException(
-                    "Could not check if topic %s is part of namespace %s".formatted(topicName.toString(), topicName.getNamespace()),
-                    e
-            );
+            throw new PulsarApiException("Could not fetch topics of namespace '%s'".formatted(namespace), e);
         }
     }
 
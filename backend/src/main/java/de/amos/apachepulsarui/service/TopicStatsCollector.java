@@ -0,0 +1,184 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.policies.data.TopicStats;
+import org.apache.pulsar.common.policies.data.stats.PublisherStatsImpl;
+import org.apache.pulsar.common.policies.data.stats.SubscriptionStatsImpl;
+import org.apache.pulsar.common.policies.data.stats.TopicStatsImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the stats of all topics with one request per broker instead of one request per topic. Every broker reports
+ * the topics it owns in a single dump, which is indexed by topic name and kept for a few seconds.
+ * <p>
+ * Brokers refresh their dumps periodically only, so the stats lag behind a little and topics created since the last
+ * refresh are missing. Callers fall back to fetching the stats of missing topics one by one.
+ */
+@Component
+@Slf4j
+public class TopicStatsCollector {
+
+    public static final String CACHE_NAME = "topics.brokerStats";
+
+    private static final String INDEX_KEY = "all";
+
+    private final PulsarAdmin pulsarAdmin;
+    private final ObjectMapper objectMapper;
+    private final String adminScheme;
+    private final boolean enabled;
+    private final Cache<String, Map<String, TopicStats>> index;
+    /**
+     * Admin clients talking to one broker each, the configured admin URL might point to a load balancer or proxy.
+     */
+    private final Map<String, PulsarAdmin> brokerAdmins = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public TopicStatsCollector(PulsarAdmin pulsarAdmin,
+                               ObjectMapper objectMapper,
+                               CaffeineCacheManager cacheManager,
+                               @Value("${pulsar.admin.url}") String adminUrl,
+                               @Value("${topics.bulk-stats.enabled}") boolean enabled,
+                               @Value("${topics.bulk-stats.expire-after-write-seconds}") long expireAfterWriteSeconds) {
+        this.pulsarAdmin = pulsarAdmin;
+        this.objectMapper = objectMapper;
+        this.adminScheme = URI.create(adminUrl).getScheme();
+        this.enabled = enabled;
+        this.index = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        cacheManager.registerCustomCache(CACHE_NAME, (Cache<Object, Object>) (Cache<?, ?>) index);
+    }
+
+    /**
+     * @return The stats of those of the topics the brokers reported, keyed by the given topic names.
+     */
+    public Map<String, TopicStats> findAll(Collection<String> topics) {
+        Map<String, TopicStats> index = getIndex();
+        Map<String, TopicStats> found = new HashMap<>();
+        for (String topic : topics) {
+            TopicStats stats = index.get(TopicName.get(topic).toString());
+            if (stats != null) {
+                found.put(topic, stats);
+            }
+        }
+        return found;
+    }
+
+    private Map<String, TopicStats> getIndex() {
+        if (!enabled) {
+            return Collections.emptyMap();
+        }
+        // concurrent callers share a single collection
+        return index.get(INDEX_KEY, key -> collect());
+    }
+
+    private Map<String, TopicStats> collect() {
+        List<String> brokers = getActiveBrokers();
+        Map<String, TopicStats> collected = new HashMap<>();
+        for (String broker : brokers) {
+            try {
+                // a single broker is reachable through the configured admin URL already
+                PulsarAdmin admin = brokers.size() == 1 ? pulsarAdmin : getBrokerAdmin(broker);
+                indexTopics(objectMapper.readTree(admin.brokerStats().getTopics()), collected);
+            } catch (PulsarAdminException | JsonProcessingException | PulsarApiException e) {
+                log.warn("Could not collect the topic stats of broker '{}', falling back to per topic stats", broker, e);
+            }
+        }
+        return Collections.unmodifiableMap(collected);
+    }
+
+    private List<String> getActiveBrokers() {
+        try {
+            List<String> brokers = new ArrayList<>();
+            for (String cluster : pulsarAdmin.clusters().getClusters()) {
+                brokers.addAll(pulsarAdmin.brokers().getActiveBrokers(cluster));
+            }
+            return brokers;
+        } catch (PulsarAdminException e) {
+            log.warn("Could not fetch the active brokers, falling back to per topic stats", e);
+            return Collections.emptyList();
+        }
+    }
+
+    private PulsarAdmin getBrokerAdmin(String broker) {
+        return brokerAdmins.computeIfAbsent(broker, address -> {
+            try {
+                return PulsarAdmin.builder()
+                        .serviceHttpUrl(adminScheme + "://" + address)
+                        .build();
+            } catch (PulsarClientException e) {
+                throw new PulsarApiException("Could not connect to the admin API of broker '%s'".formatted(address), e);
+            }
+        });
+    }
+
+    /**
+     * The dump is nested by namespace, bundle and persistence before it lists the topics. Only the parts of the stats
+     * the topic views show are taken over.
+     */
+    static void indexTopics(JsonNode dump, Map<String, TopicStats> index) {
+        for (JsonNode bundles : dump) {
+            for (JsonNode domains : bundles) {
+                for (JsonNode topics : domains) {
+                    topics.fields().forEachRemaining(topic -> index.put(topic.getKey(), toTopicStats(topic.getValue())));
+                }
+            }
+        }
+    }
+
+    private static TopicStats toTopicStats(JsonNode node) {
+        TopicStatsImpl stats = new TopicStatsImpl();
+        stats.setMsgRateIn(node.path("msgRateIn").asDouble());
+        stats.setMsgRateOut(node.path("msgRateOut").asDouble());
+        stats.setMsgThroughputIn(node.path("msgThroughputIn").asDouble());
+        stats.setMsgThroughputOut(node.path("msgThroughputOut").asDouble());
+        stats.setMsgInCounter(node.path("msgInCount").asLong());
+        stats.setMsgOutCounter(node.path("msgOutCount").asLong());
+        stats.setAverageMsgSize(node.path("averageMsgSize").asDouble());
+        stats.setStorageSize(node.path("storageSize").asLong());
+
+        List<PublisherStatsImpl> publishers = new ArrayList<>();
+        for (JsonNode publisher : node.path("publishers")) {
+            PublisherStatsImpl publisherStats = new PublisherStatsImpl();
+            publisherStats.setProducerName(publisher.path("producerName").asText(null));
+            publishers.add(publisherStats);
+        }
+        stats.setPublishers(publishers);
+
+        Map<String, SubscriptionStatsImpl> subscriptions = new HashMap<>();
+        node.path("subscriptions").fieldNames().forEachRemaining(name -> subscriptions.put(name, new SubscriptionStatsImpl()));
+        stats.setSubscriptions(subscriptions);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        brokerAdmins.values().forEach(PulsarAdmin::close);
+    }
+
+}
@@ -0,0 +1,69 @@
+package de.amos.apachepulsarui.service;
+
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The clusters, tenants, namespaces and topics at one point in time. Instances are never modified, a newer topology
+ * replaces them as a whole.
+ *
+ * @param createdAt Epoch millis of the moment the topology was read.
+ * @param clusters  The clusters by name, in the order the admin API lists them.
+ * @param tenants   The tenants by name, in the order the admin API lists them.
+ */
+public record Topology(long createdAt, Map<String, ClusterNode> clusters, Map<String, TenantNode> tenants) {
+
+    public Collection<ClusterNode> getClusters() {
+        return clusters.values();
+    }
+
+    public Collection<TenantNode> getTenants() {
+        return tenants.values();
+    }
+
+    public Optional<TenantNode> getTenant(String tenant) {
+        return Optional.ofNullable(tenants.get(tenant));
+    }
+
+    public Optional<NamespaceNode> getNamespace(String namespace) {
+        return getTenant(NamespaceName.get(namespace).getTenant())
+                .map(tenant -> tenant.namespaces().get(namespace));
+    }
+
+    /**
+     * @param numberOfTenants    The amount of tenants allowed to use the cluster.
+     * @param numberOfNamespaces The amount of namespaces of these tenants.
+     */
+    public record ClusterNode(String name, long numberOfTenants, long numberOfNamespaces) {
+    }
+
+    /**
+     * @param namespaces     The namespaces by name, in the order the admin API lists them.
+     * @param numberOfTopics The amount of topics of all namespaces.
+     */
+    public record TenantNode(String name, TenantInfo info, Map<String, NamespaceNode> namespaces, long numberOfTopics) {
+
+        public boolean isAllowedFor(String cluster) {
+            return info.getAllowedClusters() != null && info.getAllowedClusters().contains(cluster);
+        }
+
+    }
+
+    /**
+     * @param topics The fully qualified names of the topics, in the order the admin API lists them.
+     */
+    public record NamespaceNode(String name, Set<String> topics) {
+
+        boolean hasTopics(List<String> topics) {
+            return this.topics.size() == topics.size() && this.topics.containsAll(topics);
+        }
+
+    }
+
+}
@@ -0,0 +1,285 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.Topology.ClusterNode;
+import de.amos.apachepulsarui.service.Topology.NamespaceNode;
+import de.amos.apachepulsarui.service.Topology.TenantNode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a snapshot of the topology, so listing clusters, tenants, namespaces and topics costs no admin calls at all.
+ * The snapshot is refreshed in the background: every level of the topology is read with concurrent requests and
+ * compared to the previous snapshot, unchanged subtrees are taken over as they are, and the new snapshot replaces the
+ * previous one at once. Readers never see a partially refreshed topology.
+ * <p>
+ * The nodes carry the counts the cards show. They are maintained along with the comparison: only the children added,
+ * removed or changed since the previous snapshot update the counts of their parents, so reading a count costs the same
+ * no matter how many children there are.
+ */
+@Service
+@Slf4j
+public class TopologySnapshot {
+
+    public static final String AGE_HEADER = "X-Topology-Snapshot-Age";
+
+    private final PulsarAdmin pulsarAdmin;
+    private final int maxInFlight;
+    private final AtomicReference<Topology> current = new AtomicReference<>();
+
+    public TopologySnapshot(PulsarAdmin pulsarAdmin, @Value("${topology.refresh.max-in-flight}") int maxInFlight) {
+        this.pulsarAdmin = pulsarAdmin;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @return The latest snapshot. Only the very first call waits for the topology to be read.
+     */
+    public Topology get() {
+        Topology topology = current.get();
+        return topology != null ? topology : readFirst();
+    }
+
+    /**
+     * Concurrent first calls wait for a single read of the topology instead of reading it one after another.
+     */
+    private synchronized Topology readFirst() {
+        Topology topology = current.get();
+        return topology != null ? topology : refresh();
+    }
+
+    /**
+     * @return Seconds since the latest snapshot has been read, 0 if there is none yet.
+     */
+    public long getAgeSeconds() {
+        Topology topology = current.get();
+        return topology == null ? 0 : TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - topology.createdAt());
+    }
+
+    @Scheduled(fixedDelayString = "${topology.refresh.interval-millis}")
+    public void refreshPeriodically() {
+        tryRefresh();
+    }
+
+    /**
+     * Like {@link #refresh()}, but keeps the previous snapshot if the topology can't be read.
+     *
+     * @return Whether the snapshot has been refreshed.
+     */
+    public boolean tryRefresh() {
+        try {
+            refresh();
+            return true;
+        } catch (PulsarApiException e) {
+            log.warn("Could not refresh the topology snapshot, keeping the previous one", e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the topology and replaces the snapshot with it.
+     */
+    public synchronized Topology refresh() {
+        long start = System.nanoTime();
+        Topology previous = current.get();
+        Topology topology = read(previous);
+        current.set(topology);
+        log.debug("Refreshed the topology snapshot in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return topology;
+    }
+
+    private Topology read(Topology previous) {
+        try {
+            List<String> clusters = pulsarAdmin.clusters().getClusters();
+            List<String> tenantNames = pulsarAdmin.tenants().getTenants();
+            List<TenantInfo> tenantInfos = AsyncFanOut.collectOrdered(tenantNames, maxInFlight,
+                    tenant -> nullIfGone(pulsarAdmin.tenants().getTenantInfoAsync(tenant)));
+            List<List<String>> namespaceNames = AsyncFanOut.collectOrdered(tenantNames, maxInFlight,
+                    tenant -> nullIfGone(pulsarAdmin.namespaces().getNamespacesAsync(tenant)));
+
+            List<String> allNamespaces = namespaceNames.stream()
+                    .filter(Objects::nonNull)
+                    .flatMap(List::stream)
+                    .toList();
+            List<List<String>> topicNames = AsyncFanOut.collectOrdered(allNamespaces, maxInFlight,
+                    namespace -> nullIfGone(pulsarAdmin.topics().getListAsync(namespace)));
+            Map<String, List<String>> topicsByNamespace = new HashMap<>();
+            for (int i = 0; i < allNamespaces.size(); i++) {
+                topicsByNamespace.put(allNamespaces.get(i), topicNames.get(i));
+            }
+
+            Map<String, TenantNode> previousTenants = previous == null ? Map.of() : previous.tenants();
+            Map<String, TenantNode> tenants = new LinkedHashMap<>();
+            ClusterCounts clusterDeltas = new ClusterCounts();
+            for (int i = 0; i < tenantNames.size(); i++) {
+                // tenants deleted while the topology was read are left out
+                if (tenantInfos.get(i) != null && namespaceNames.get(i) != null) {
+                    TenantNode previousTenant = previousTenants.get(tenantNames.get(i));
+                    TenantNode tenant = diffTenant(
+                            previousTenant, tenantNames.get(i), tenantInfos.get(i), namespaceNames.get(i), topicsByNamespace);
+                    if (tenant != previousTenant) {
+                        clusterDeltas.remove(previousTenant);
+                        clusterDeltas.add(tenant);
+                    }
+                    tenants.put(tenantNames.get(i), tenant);
+                }
+            }
+            previousTenants.values().stream()
+                    .filter(tenant -> !tenants.containsKey(tenant.name()))
+                    .forEach(clusterDeltas::remove);
+
+            return new Topology(
+                    System.currentTimeMillis(),
+                    diffClusters(previous, clusters, clusterDeltas, tenants),
+                    Collections.unmodifiableMap(tenants)
+            );
+        } catch (PulsarAdminException e) {
+            throw new PulsarApiException("Could not read the topology", e);
+        }
+    }
+
+    /**
+     * Clusters known from the previous snapshot get the changes of their tenants applied to their counts. Clusters
+     * showing up for the first time are counted once.
+     */
+    private static Map<String, ClusterNode> diffClusters(Topology previous,
+                                                         List<String> clusterNames,
+                                                         ClusterCounts deltas,
+                                                         Map<String, TenantNode> tenants) {
+        Map<String, ClusterNode> clusters = new LinkedHashMap<>();
+        ClusterCounts totals = null;
+        for (String cluster : clusterNames) {
+            ClusterNode previousCluster = previous == null ? null : previous.clusters().get(cluster);
+            ClusterNode node;
+            if (previousCluster == null) {
+                if (totals == null) {
+                    totals = new ClusterCounts();
+                    tenants.values().forEach(totals::add);
+                }
+                node = totals.applyTo(new ClusterNode(cluster, 0, 0));
+            } else {
+                node = deltas.applyTo(previousCluster);
+            }
+            clusters.put(cluster, node);
+        }
+        return Collections.unmodifiableMap(clusters);
+    }
+
+    /**
+     * @return The previous node of the tenant if neither the tenant nor any of its namespaces changed, otherwise a new
+     * node sharing the unchanged namespaces with the previous one.
+     */
+    private TenantNode diffTenant(TenantNode previous,
+                                  String name,
+                                  TenantInfo info,
+                                  List<String> namespaceNames,
+                                  Map<String, List<String>> topicsByNamespace) {
+        Map<String, NamespaceNode> previousNamespaces = previous == null ? Map.of() : previous.namespaces();
+        Map<String, NamespaceNode> namespaces = new LinkedHashMap<>();
+        long numberOfTopics = previous == null ? 0 : previous.numberOfTopics();
+        boolean changed = previous == null || !previous.info().equals(info);
+        for (String namespace : namespaceNames) {
+            List<String> topics = topicsByNamespace.get(namespace);
+            if (topics == null) {
+                // deleted while the topology was read
+                continue;
+            }
+            NamespaceNode previousNamespace = previousNamespaces.get(namespace);
+            NamespaceNode node = diffNamespace(previousNamespace, namespace, topics);
+            if (node != previousNamespace) {
+                changed = true;
+                numberOfTopics += node.topics().size() - (previousNamespace == null ? 0 : previousNamespace.topics().size());
+            }
+            namespaces.put(namespace, node);
+        }
+        for (NamespaceNode previousNamespace : previousNamespaces.values()) {
+            if (!namespaces.containsKey(previousNamespace.name())) {
+                changed = true;
+                numberOfTopics -= previousNamespace.topics().size();
+            }
+        }
+        return changed ? new TenantNode(name, info, Collections.unmodifiableMap(namespaces), numberOfTopics) : previous;
+    }
+
+    private static NamespaceNode diffNamespace(NamespaceNode previous, String name, List<String> topics) {
+        if (previous != null && previous.hasTopics(topics)) {
+            return previous;
+        }
+        return new NamespaceNode(name, Collections.unmodifiableSet(new LinkedHashSet<>(topics)));
+    }
+
+    /**
+     * Sums up the tenants and namespaces per cluster, tenants count for every cluster they are allowed to use.
+     */
+    private static class ClusterCounts {
+
+        private final Map<String, long[]> counts = new HashMap<>();
+
+        private void add(TenantNode tenant) {
+            update(tenant, 1);
+        }
+
+        private void remove(TenantNode tenant) {
+            update(tenant, -1);
+        }
+
+        private void update(TenantNode tenant, int sign) {
+            if (tenant == null || tenant.info().getAllowedClusters() == null) {
+                return;
+            }
+            for (String cluster : tenant.info().getAllowedClusters()) {
+                long[] count = counts.computeIfAbsent(cluster, c -> new long[2]);
+                count[0] += sign;
+                count[1] += (long) sign * tenant.namespaces().size();
+            }
+        }
+
+        private ClusterNode applyTo(ClusterNode cluster) {
+            long[] count = counts.get(cluster.name());
+            if (count == null || (count[0] == 0 && count[1] == 0)) {
+                return cluster;
+            }
+            return new ClusterNode(
+                    cluster.name(),
+                    cluster.numberOfTenants() + count[0],
+                    cluster.numberOfNamespaces() + count[1]
+            );
+        }
+
+    }
+
+    /**
+     * Lets entities deleted between listing them and reading their children be skipped instead of failing the
+     * refresh.
+     */
+    private static <R> CompletableFuture<R> nullIfGone(CompletableFuture<R> call) {
+        return call.handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof PulsarAdminException.NotFoundException) {
+                return null;
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+}
@@ -0,0 +1,92 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.JsonEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts Avro encoded payloads of one schema to JSON. The schema is parsed and the datum reader and writer are
+ * built once; decoders, records and buffers are reused per thread, so converting a payload mostly costs the actual
+ * bytes-to-JSON work. Streamed responses skip the record and the JSON string altogether, see
+ * {@link #writeJson(byte[], JsonGenerator)}.
+ */
+public class AvroDecoder implements PayloadDecoder {
+
+    private final Schema schema;
+    private final GenericDatumReader<Object> reader;
+    private final GenericDatumWriter<Object> writer;
+    private final ThreadLocal<Reusables> reusables = ThreadLocal.withInitial(Reusables::new);
+
+    AvroDecoder(Schema schema) {
+        this.schema = schema;
+        this.reader = new GenericDatumReader<>(schema);
+        this.writer = new GenericDatumWriter<>(schema);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @throws IOException If the payload can't be read with the schema of this decoder.
+     */
+    public String toJson(byte[] payload) throws IOException {
+        // Avro byte-to-json conversion inspired from https://stackoverflow.com/a/58390574
+        Reusables r = reusables.get();
+        try {
+            r.decoder = DecoderFactory.get().binaryDecoder(payload, r.decoder);
+            r.datum = reader.read(r.datum, r.decoder);
+
+            r.output.reset();
+            // a reused encoder separates further values from the previous one by a line break, and reconfiguring it
+            // drops the pretty printing
+            JsonEncoder encoder = EncoderFactory.get().jsonEncoder(schema, r.output, true);
+            writer.write(r.datum, encoder);
+            encoder.flush();
+            return r.output.toString(StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            // partially written state can't be trusted for the next payload
+            r.datum = null;
+            throw e;
+        }
+    }
+
+    @Override
+    public String decode(byte[] payload) throws IOException {
+        return toJson(payload);
+    }
+
+    /**
+     * Streams the payload into the generator without decoding it into a record first.
+     */
+    @Override
+    public void writeJson(byte[] payload, JsonGenerator generator) throws IOException {
+        Reusables r = reusables.get();
+        r.decoder = DecoderFactory.get().binaryDecoder(payload, r.decoder);
+        r.jsonWriter.write(schema, r.decoder, generator);
+    }
+
+    @Override
+    public boolean isJson() {
+        return true;
+    }
+
+    private class Reusables {
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final AvroJsonWriter jsonWriter = new AvroJsonWriter();
+        private BinaryDecoder decoder;
+        private Object datum;
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import org.apache.avro.Schema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class AvroDecoderFactory implements PayloadDecoderFactory {
+
+    @Override
+    public Set<SchemaType> getSchemaTypes() {
+        return Set.of(SchemaType.AVRO);
+    }
+
+    @Override
+    public PayloadDecoder create(SchemaInfo schemaInfo, PayloadDecoderRegistry registry) {
+        return new AvroDecoder(new Schema.Parser().parse(schemaInfo.getSchemaDefinition()));
+    }
+
+}
@@ -0,0 +1,93 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.avro.Schema;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Walks an Avro binary payload along its schema and emits the JSON tokens straight into a Jackson generator, without
+ * materializing a record or an intermediate JSON string. The output follows Avro's JSON encoding like
+ * {@link org.apache.avro.io.JsonEncoder}: unions other than null are wrapped in an object named after their branch and
+ * bytes are written as ISO-8859-1 strings. Not thread-safe, the string buffer is reused between values.
+ */
+class AvroJsonWriter {
+
+    private Utf8 string = new Utf8();
+    private ByteBuffer bytes;
+
+    void write(Schema schema, Decoder in, JsonGenerator out) throws IOException {
+        switch (schema.getType()) {
+            case RECORD -> {
+                out.writeStartObject();
+                for (Schema.Field field : schema.getFields()) {
+                    out.writeFieldName(field.name());
+                    write(field.schema(), in, out);
+                }
+                out.writeEndObject();
+            }
+            case ENUM -> out.writeString(schema.getEnumSymbols().get(in.readEnum()));
+            case ARRAY -> {
+                out.writeStartArray();
+                for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+                    for (long i = 0; i < n; i++) {
+                        write(schema.getElementType(), in, out);
+                    }
+                }
+                out.writeEndArray();
+            }
+            case MAP -> {
+                out.writeStartObject();
+                for (long n = in.readMapStart(); n != 0; n = in.mapNext()) {
+                    for (long i = 0; i < n; i++) {
+                        string = in.readString(string);
+                        out.writeFieldName(string.toString());
+                        write(schema.getValueType(), in, out);
+                    }
+                }
+                out.writeEndObject();
+            }
+            case UNION -> {
+                Schema branch = schema.getTypes().get(in.readIndex());
+                if (branch.getType() == Schema.Type.NULL) {
+                    in.readNull();
+                    out.writeNull();
+                } else {
+                    out.writeStartObject();
+                    out.writeFieldName(branch.getFullName());
+                    write(branch, in, out);
+                    out.writeEndObject();
+                }
+            }
+            case FIXED -> {
+                byte[] fixed = new byte[schema.getFixedSize()];
+                in.readFixed(fixed);
+                out.writeString(new String(fixed, StandardCharsets.ISO_8859_1));
+            }
+            case STRING -> {
+                string = in.readString(string);
+                // writeUTF8String is only supported by generators writing to byte streams
+                out.writeString(string.toString());
+            }
+            case BYTES -> {
+                bytes = in.readBytes(bytes);
+                out.writeString(new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(),
+                        StandardCharsets.ISO_8859_1));
+            }
+            case INT -> out.writeNumber(in.readInt());
+            case LONG -> out.writeNumber(in.readLong());
+            case FLOAT -> out.writeNumber(in.readFloat());
+            case DOUBLE -> out.writeNumber(in.readDouble());
+            case BOOLEAN -> out.writeBoolean(in.readBoolean());
+            case NULL -> {
+                in.readNull();
+                out.writeNull();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Payloads of JSON schemas already are JSON documents. Their schema definition looks like an Avro schema but must not
+ * be used to decode them as Avro.
+ */
+@Component
+public class JsonDecoderFactory implements PayloadDecoderFactory {
+
+    private static final PayloadDecoder JSON = new PayloadDecoder() {
+        @Override
+        public String decode(byte[] payload) {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean isJson() {
+            return true;
+        }
+    };
+
+    @Override
+    public Set<SchemaType> getSchemaTypes() {
+        return Set.of(SchemaType.JSON);
+    }
+
+    @Override
+    public PayloadDecoder create(SchemaInfo schemaInfo, PayloadDecoderRegistry registry) {
+        return JSON;
+    }
+
+}
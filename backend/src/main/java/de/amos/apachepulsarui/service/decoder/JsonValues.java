@@ -0,0 +1,41 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Embeds JSON text into JSON responses.
+ */
+final class JsonValues {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JsonValues() {
+    }
+
+    /**
+     * Writes the JSON value of the text token by token, so it is written in the style of the generator no matter how
+     * the text is formatted. Line breaks of pretty printed text would otherwise split the lines of newline delimited
+     * JSON and the data lines of server-sent events.
+     *
+     * @throws IOException If the text is not exactly one JSON value, possibly after some tokens have already been
+     *                     written.
+     */
+    static void copySingleValue(String text, JsonGenerator generator) throws IOException {
+        JsonFactory factory = generator.getCodec() == null ? JSON_FACTORY : generator.getCodec().getFactory();
+        try (JsonParser parser = factory.createParser(text)) {
+            if (parser.nextToken() == null) {
+                throw new JsonParseException(parser, "No JSON value");
+            }
+            generator.copyCurrentStructure(parser);
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "More than one JSON value");
+            }
+        }
+    }
+
+}
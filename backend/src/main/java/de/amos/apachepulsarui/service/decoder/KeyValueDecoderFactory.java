@@ -0,0 +1,83 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.apache.pulsar.client.impl.schema.KeyValueSchemaInfo;
+import org.apache.pulsar.common.schema.KeyValue;
+import org.apache.pulsar.common.schema.KeyValueEncodingType;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Decodes key-value payloads with the decoders of their key and value schema. Inline encoded payloads contain both key
+ * and value and are shown as {"key": ..., "value": ...}; separated encoded payloads only contain the value, the key is
+ * the key of the message.
+ */
+@Component
+public class KeyValueDecoderFactory implements PayloadDecoderFactory {
+
+    @Override
+    public Set<SchemaType> getSchemaTypes() {
+        return Set.of(SchemaType.KEY_VALUE);
+    }
+
+    @Override
+    public PayloadDecoder create(SchemaInfo schemaInfo, PayloadDecoderRegistry registry) {
+        KeyValue<SchemaInfo, SchemaInfo> schemas = KeyValueSchemaInfo.decodeKeyValueSchemaInfo(schemaInfo);
+        Optional<PayloadDecoder> valueDecoder = registry.forSchema(schemas.getValue());
+        if (KeyValueSchemaInfo.decodeKeyValueEncodingType(schemaInfo) == KeyValueEncodingType.SEPARATED) {
+            return valueDecoder.orElseGet(() -> payload -> new String(payload, StandardCharsets.UTF_8));
+        }
+        Optional<PayloadDecoder> keyDecoder = registry.forSchema(schemas.getKey());
+        return new InlineDecoder(keyDecoder, valueDecoder);
+    }
+
+    private record InlineDecoder(Optional<PayloadDecoder> keyDecoder,
+                                 Optional<PayloadDecoder> valueDecoder) implements PayloadDecoder {
+
+        @Override
+        public String decode(byte[] payload) throws IOException {
+            try {
+                KeyValue<String, String> keyValue = KeyValue.decode(payload, (key, value) -> new KeyValue<>(
+                        toJson(keyDecoder, key),
+                        toJson(valueDecoder, value)
+                ));
+                return "{\"key\": " + keyValue.getKey() + ", \"value\": " + keyValue.getValue() + "}";
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public boolean isJson() {
+            return true;
+        }
+
+        private static String toJson(Optional<PayloadDecoder> decoder, byte[] data) {
+            if (data == null) {
+                return "null";
+            }
+            try {
+                if (decoder.isPresent()) {
+                    String decoded = decoder.get().decode(data);
+                    return decoder.get().isJson() ? decoded : quote(decoded);
+                }
+                return quote(new String(data, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String quote(String text) {
+            return "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(text)) + "\"";
+        }
+
+    }
+
+}
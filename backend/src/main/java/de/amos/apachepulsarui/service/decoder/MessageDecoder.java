@@ -0,0 +1,244 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.amos.apachepulsarui.dto.MessageDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns messages read from a topic into {@link MessageDto}s with a payload decoded for display. Every message is
+ * decoded with the schema version it was written with.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class MessageDecoder {
+
+    private final PulsarAdmin pulsarAdmin;
+    private final PayloadDecoderRegistry payloadDecoderRegistry;
+    private final SchemaVersionCache schemaVersionCache;
+
+    /**
+     * How many bytes of a decoded payload are kept in messages for listings. 0 keeps the whole payload.
+     */
+    @Value("${messages.preview.max-bytes}")
+    private int previewMaxBytes;
+
+    /**
+     * Looks up everything needed to decode the messages of a topic once, so decoding a whole range of messages does
+     * not repeat it per message.
+     */
+    public TopicDecoder forTopic(String topic) {
+        return new TopicDecoder(topic, forSchema(getSchemaIfExists(topic)));
+    }
+
+    private SchemaInfo getSchemaIfExists(String topic) {
+        try {
+            return pulsarAdmin.schemas().getSchemaInfo(topic);
+        } catch (PulsarAdminException e) {
+            return null;
+        }
+    }
+
+    private SchemaDecoder forSchema(SchemaInfo schemaInfo) {
+        String schemaDefinition = schemaInfo == null ? "" : schemaInfo.getSchemaDefinition();
+        return new SchemaDecoder(schemaDefinition, payloadDecoderRegistry.forSchema(schemaInfo));
+    }
+
+    /**
+     * Pulsar stores schema versions as 8 byte big endian numbers.
+     *
+     * @return The schema version of the message or null if it was written without schema.
+     */
+    public static Long schemaVersionOf(Message<byte[]> message) {
+        byte[] schemaVersion = message.getSchemaVersion();
+        if (schemaVersion == null || schemaVersion.length != Long.BYTES) {
+            return null;
+        }
+        return ByteBuffer.wrap(schemaVersion).getLong();
+    }
+
+    /**
+     * Decodes messages of a single topic. Safe to use from multiple threads at once.
+     */
+    public class TopicDecoder {
+
+        private final String topic;
+        private final SchemaDecoder latestSchema;
+        /**
+         * The decoders of the schema versions seen while decoding with this decoder, so the shared cache is only
+         * consulted once per version.
+         */
+        private final Map<Long, SchemaDecoder> versions = new ConcurrentHashMap<>();
+
+        private TopicDecoder(String topic, SchemaDecoder latestSchema) {
+            this.topic = topic;
+            this.latestSchema = latestSchema;
+        }
+
+        /**
+         * @return The message with a preview of its payload, as shown in listings.
+         */
+        public MessageDto toMessageDto(Message<byte[]> message) {
+            return toMessageDto(message, decodePayload(message));
+        }
+
+        /**
+         * @param payload The payload of the message, already decoded by {@link #decodePayload(Message)}.
+         * @return The message with a preview of its payload, as shown in listings.
+         */
+        public MessageDto toMessageDto(Message<byte[]> message, String payload) {
+            MessageDto messageDto = toFullMessageDto(message, payload);
+            if (previewMaxBytes > 0) {
+                String preview = PayloadPreview.truncate(payload, previewMaxBytes);
+                messageDto.setPayloadTruncated(preview.length() < payload.length());
+                messageDto.setPayload(preview);
+            }
+            return messageDto;
+        }
+
+        /**
+         * @return The message with its whole payload.
+         */
+        public MessageDto toFullMessageDto(Message<byte[]> message) {
+            return toFullMessageDto(message, decodePayload(message));
+        }
+
+        private MessageDto toFullMessageDto(Message<byte[]> message, String payload) {
+            SchemaDecoder schema = schemaOf(message);
+            MessageDto messageDto = MessageDto.fromExistingMessage(message, schema.schemaDefinition, payload);
+            messageDto.setBinary(schema.payloadDecoder.isEmpty() && !PayloadPreview.isText(message.getData()));
+            return messageDto;
+        }
+
+        /**
+         * @return The message for streamed responses, decoding its payload only once it is written.
+         */
+        public StreamedMessage toStreamedMessage(Message<byte[]> message) {
+            SchemaDecoder schema = schemaOf(message);
+            return new StreamedMessage() {
+                @Override
+                public String getMessageId() {
+                    return message.getMessageId().toString();
+                }
+
+                @Override
+                public void writeJson(JsonGenerator generator, boolean decodePayload) throws IOException {
+                    TopicName topicName = TopicName.get(message.getTopicName());
+                    generator.writeStartObject();
+                    generator.writeStringField("messageId", getMessageId());
+                    generator.writeStringField("topic", message.getTopicName());
+                    generator.writeFieldName("payload");
+                    if (decodePayload) {
+                        schema.writeJson(message.getData(), generator);
+                    } else {
+                        generator.writeString(new String(message.getData(), StandardCharsets.UTF_8));
+                    }
+                    generator.writeStringField("schema", schema.schemaDefinition);
+                    generator.writeStringField("namespace", topicName.getNamespacePortion());
+                    generator.writeStringField("tenant", topicName.getTenant());
+                    generator.writeNumberField("publishTime", message.getPublishTime());
+                    generator.writeStringField("producer", message.getProducerName());
+                    generator.writeStringField("key", message.hasKey() ? message.getKey() : null);
+                    generator.writeObjectField("properties", message.getProperties());
+                    if (message.getEventTime() > 0) {
+                        generator.writeNumberField("eventTime", message.getEventTime());
+                    } else {
+                        generator.writeNullField("eventTime");
+                    }
+                    generator.writeEndObject();
+                }
+            };
+        }
+
+        public String decodePayload(Message<byte[]> message) {
+            return schemaOf(message).decode(message.getData());
+        }
+
+        /**
+         * Resolves the schema versions the messages were written with that this decoder has not seen yet. The versions
+         * are fetched concurrently, so decoding a batch of messages afterwards waits for the slowest of them only once
+         * instead of for every new version one after another.
+         */
+        public void resolveSchemas(Collection<Message<byte[]>> messages) {
+            Map<Long, CompletableFuture<SchemaDecoder>> pending = new HashMap<>();
+            for (Message<byte[]> message : messages) {
+                Long version = schemaVersionOf(message);
+                if (version != null && !versions.containsKey(version)) {
+                    pending.computeIfAbsent(version, this::loadVersion);
+                }
+            }
+            pending.forEach((version, schema) -> versions.putIfAbsent(version, schema.join()));
+        }
+
+        private SchemaDecoder schemaOf(Message<byte[]> message) {
+            Long version = schemaVersionOf(message);
+            if (version == null) {
+                return latestSchema;
+            }
+            SchemaDecoder schema = versions.get(version);
+            if (schema != null) {
+                return schema;
+            }
+            // waits for the admin API outside the map, so decoding messages of other versions is not held up
+            SchemaDecoder loaded = loadVersion(version).join();
+            SchemaDecoder raced = versions.putIfAbsent(version, loaded);
+            return raced == null ? loaded : raced;
+        }
+
+        private CompletableFuture<SchemaDecoder> loadVersion(long version) {
+            return schemaVersionCache.getSchemaInfo(topic, version)
+                    .thenApply(MessageDecoder.this::forSchema)
+                    .exceptionally(e -> {
+                        log.debug("Could not fetch version {} of the schema of topic '{}', decoding with the latest one", version, topic, e);
+                        return latestSchema;
+                    });
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private static class SchemaDecoder {
+
+        private final String schemaDefinition;
+        private final Optional<PayloadDecoder> payloadDecoder;
+
+        private String decode(byte[] data) {
+            if (payloadDecoder.isPresent()) {
+                try {
+                    return payloadDecoder.get().decode(data);
+                } catch (IOException | RuntimeException e) {
+                    // Do nothing. If message cannot be parsed with its schema, return UTF-8 string below
+                }
+            }
+            return new String(data, StandardCharsets.UTF_8);
+        }
+
+        private void writeJson(byte[] data, JsonGenerator generator) throws IOException {
+            if (payloadDecoder.isPresent()) {
+                payloadDecoder.get().writeJson(data, generator);
+            } else {
+                generator.writeString(new String(data, StandardCharsets.UTF_8));
+            }
+        }
+
+    }
+
+}
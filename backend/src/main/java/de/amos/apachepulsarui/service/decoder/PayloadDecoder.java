@@ -0,0 +1,43 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Decodes the payloads of messages written with one particular schema for display. Decoders are compiled once per
+ * schema by a {@link PayloadDecoderFactory} and are safe to use from multiple threads at once.
+ */
+public interface PayloadDecoder {
+
+    /**
+     * @throws IOException If the payload can't be read with the schema of this decoder.
+     */
+    String decode(byte[] payload) throws IOException;
+
+    /**
+     * Writes the decoded payload as JSON value, copied token by token if the decoder produces JSON and as string
+     * otherwise. Decoders able to emit JSON tokens directly override this to skip building the decoded payload as
+     * string. Copying the tokens rather than the text keeps pretty printed payloads on the line of their message and
+     * fails on payloads that are no single JSON value, so they can't break the surrounding document.
+     *
+     * @throws IOException If the payload can't be read with the schema of this decoder, possibly after some tokens
+     *                     have already been written.
+     */
+    default void writeJson(byte[] payload, JsonGenerator generator) throws IOException {
+        String decoded = decode(payload);
+        if (isJson()) {
+            JsonValues.copySingleValue(decoded, generator);
+        } else {
+            generator.writeString(decoded);
+        }
+    }
+
+    /**
+     * @return Whether the decoded payloads are JSON documents rather than plain text.
+     */
+    default boolean isJson() {
+        return false;
+    }
+
+}
@@ -0,0 +1,22 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+
+import java.util.Set;
+
+/**
+ * Compiles {@link PayloadDecoder}s for the schema types it supports. Every factory registered as bean is picked up by
+ * the {@link PayloadDecoderRegistry}, so supporting another format only takes another factory.
+ */
+public interface PayloadDecoderFactory {
+
+    Set<SchemaType> getSchemaTypes();
+
+    /**
+     * @param registry Provides the decoders of schemas nested in the given one.
+     * @throws Exception If the schema is invalid or can't be decoded by this factory.
+     */
+    PayloadDecoder create(SchemaInfo schemaInfo, PayloadDecoderRegistry registry) throws Exception;
+
+}
@@ -0,0 +1,87 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.SchemaNormalization;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded registry of compiled {@link PayloadDecoder}s keyed by schema type, the fingerprint of the schema and the
+ * schema properties, so a schema is only compiled once no matter how many messages are decoded with it. The decoder is chosen by the schema
+ * type from the registered {@link PayloadDecoderFactory}s. The registry is registered with the cache manager, which
+ * makes its hit rate show up in the cache statistics and lets it be flushed with the other caches.
+ * <p>
+ * The properties are part of the key because some schema types keep part of their definition there, like the
+ * encoding type of key-value schemas or the parsing info of Protobuf schemas.
+ */
+@Component
+@Slf4j
+public class PayloadDecoderRegistry {
+
+    public static final String CACHE_NAME = "messages.payloadDecoders";
+
+    private final Map<SchemaType, PayloadDecoderFactory> factories = new EnumMap<>(SchemaType.class);
+    private final Cache<DecoderKey, Optional<PayloadDecoder>> decoders;
+
+    @SuppressWarnings("unchecked")
+    public PayloadDecoderRegistry(List<PayloadDecoderFactory> factories,
+                                  CaffeineCacheManager cacheManager,
+                                  @Value("${messages.decoders.cache-size}") long maximumSize) {
+        factories.forEach(factory -> factory.getSchemaTypes().forEach(type -> this.factories.put(type, factory)));
+        this.decoders = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        cacheManager.registerCustomCache(CACHE_NAME, (Cache<Object, Object>) (Cache<?, ?>) decoders);
+    }
+
+    /**
+     * @return The decoder for the schema or an empty optional if there is no schema, no decoder for its type or it is
+     * invalid. Payloads without decoder are shown as UTF-8 text.
+     */
+    public Optional<PayloadDecoder> forSchema(SchemaInfo schemaInfo) {
+        if (schemaInfo == null) {
+            return Optional.empty();
+        }
+        PayloadDecoderFactory factory = factories.get(schemaInfo.getType());
+        if (factory == null) {
+            return Optional.empty();
+        }
+        DecoderKey key = new DecoderKey(
+                schemaInfo.getType(),
+                SchemaNormalization.fingerprint64(schemaInfo.getSchema()),
+                schemaInfo.getProperties() == null ? Map.of() : new HashMap<>(schemaInfo.getProperties())
+        );
+        // not computed within the cache, key-value schemas look up the decoders of their parts recursively
+        Optional<PayloadDecoder> decoder = decoders.getIfPresent(key);
+        if (decoder == null) {
+            decoder = compile(factory, schemaInfo);
+            decoders.put(key, decoder);
+        }
+        return decoder;
+    }
+
+    private Optional<PayloadDecoder> compile(PayloadDecoderFactory factory, SchemaInfo schemaInfo) {
+        try {
+            return Optional.of(factory.create(schemaInfo, this));
+        } catch (Exception e) {
+            log.debug("Could not compile a decoder for {} schema, payloads will not be decoded with it", schemaInfo.getType(), e);
+            return Optional.empty();
+        }
+    }
+
+    private record DecoderKey(SchemaType type, long fingerprint, Map<String, String> properties) {
+    }
+
+}
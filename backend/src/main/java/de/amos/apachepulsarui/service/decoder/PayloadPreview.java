@@ -0,0 +1,77 @@
+package de.amos.apachepulsarui.service.decoder;
+
+/**
+ * Helpers to keep payloads shown in message lists small.
+ */
+final class PayloadPreview {
+
+    private PayloadPreview() {
+    }
+
+    /**
+     * Cuts the text to at most maxBytes bytes of UTF-8 without splitting a character, without encoding the text.
+     *
+     * @return The text itself if it fits.
+     */
+    static String truncate(String text, int maxBytes) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int charBytes;
+            if (c < 0x80) {
+                charBytes = 1;
+            } else if (c < 0x800) {
+                charBytes = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                charBytes = 4;
+            } else {
+                charBytes = 3;
+            }
+            if (bytes + charBytes > maxBytes) {
+                return text.substring(0, i);
+            }
+            bytes += charBytes;
+            if (charBytes == 4) {
+                i++;
+            }
+        }
+        return text;
+    }
+
+    /**
+     * @return Whether the data is valid UTF-8 without control characters other than whitespace, i.e. is readable
+     * as text.
+     */
+    static boolean isText(byte[] data) {
+        int i = 0;
+        while (i < data.length) {
+            int b = data[i] & 0xFF;
+            int continuationBytes;
+            if (b < 0x80) {
+                if ((b < 0x20 && b != '\t' && b != '\n' && b != '\r') || b == 0x7F) {
+                    return false;
+                }
+                continuationBytes = 0;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                continuationBytes = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuationBytes = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuationBytes = 3;
+            } else {
+                return false;
+            }
+            if (i + continuationBytes >= data.length) {
+                return false;
+            }
+            for (int j = 1; j <= continuationBytes; j++) {
+                if ((data[i + j] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuationBytes + 1;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,43 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Decodes primitive payloads like numbers, booleans and timestamps with the built-in Pulsar schema of their type.
+ */
+@Component
+public class PrimitiveDecoderFactory implements PayloadDecoderFactory {
+
+    @Override
+    public Set<SchemaType> getSchemaTypes() {
+        return Set.of(
+                SchemaType.STRING,
+                SchemaType.BOOLEAN,
+                SchemaType.INT8,
+                SchemaType.INT16,
+                SchemaType.INT32,
+                SchemaType.INT64,
+                SchemaType.FLOAT,
+                SchemaType.DOUBLE,
+                SchemaType.DATE,
+                SchemaType.TIME,
+                SchemaType.TIMESTAMP,
+                SchemaType.INSTANT,
+                SchemaType.LOCAL_DATE,
+                SchemaType.LOCAL_TIME,
+                SchemaType.LOCAL_DATE_TIME
+        );
+    }
+
+    @Override
+    public PayloadDecoder create(SchemaInfo schemaInfo, PayloadDecoderRegistry registry) {
+        Schema<?> schema = Schema.getSchema(schemaInfo);
+        return payload -> String.valueOf(schema.decode(payload));
+    }
+
+}
@@ -0,0 +1,141 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import lombok.RequiredArgsConstructor;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decodes Protobuf payloads of schemas generated from Java classes. Their schema only describes the top level fields
+ * by number, name and type in the parsing info property, so nested messages are shown with their field numbers as
+ * names.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProtobufDecoderFactory implements PayloadDecoderFactory {
+
+    private static final String PARSING_INFO_PROPERTY = "__PARSING_INFO__";
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Set<SchemaType> getSchemaTypes() {
+        return Set.of(SchemaType.PROTOBUF);
+    }
+
+    @Override
+    public PayloadDecoder create(SchemaInfo schemaInfo, PayloadDecoderRegistry registry) throws IOException {
+        Map<Integer, Field> fields = new HashMap<>();
+        String parsingInfo = schemaInfo.getProperties().get(PARSING_INFO_PROPERTY);
+        if (parsingInfo != null) {
+            for (JsonNode field : objectMapper.readTree(parsingInfo)) {
+                fields.put(field.path("number").asInt(), new Field(
+                        field.path("name").asText(),
+                        field.path("type").asText(),
+                        "LABEL_REPEATED".equals(field.path("label").asText())
+                ));
+            }
+        }
+        return new ProtobufDecoder(fields);
+    }
+
+    private record Field(String name, String type, boolean repeated) {
+    }
+
+    private record ProtobufDecoder(Map<Integer, Field> fields) implements PayloadDecoder {
+
+        private static final Field UNKNOWN = new Field(null, "", false);
+
+        @Override
+        public String decode(byte[] payload) throws IOException {
+            return toJson(UnknownFieldSet.parseFrom(payload), fields).toString();
+        }
+
+        @Override
+        public boolean isJson() {
+            return true;
+        }
+
+        private static ObjectNode toJson(UnknownFieldSet fieldSet, Map<Integer, Field> fields) {
+            ObjectNode json = JsonNodeFactory.instance.objectNode();
+            fieldSet.asMap().forEach((number, value) -> {
+                Field field = fields.getOrDefault(number, UNKNOWN);
+                List<JsonNode> values = toJson(value, field.type());
+                String name = field.name() == null ? String.valueOf(number) : field.name();
+                if (values.size() == 1 && !field.repeated()) {
+                    json.set(name, values.get(0));
+                } else {
+                    ArrayNode array = json.putArray(name);
+                    values.forEach(array::add);
+                }
+            });
+            return json;
+        }
+
+        private static List<JsonNode> toJson(UnknownFieldSet.Field value, String type) {
+            JsonNodeFactory nodes = JsonNodeFactory.instance;
+            List<JsonNode> values = new ArrayList<>();
+            for (long varint : value.getVarintList()) {
+                values.add(switch (type) {
+                    case "BOOL" -> nodes.booleanNode(varint != 0);
+                    case "SINT32", "SINT64" -> nodes.numberNode(CodedInputStream.decodeZigZag64(varint));
+                    case "INT32", "ENUM" -> nodes.numberNode((int) varint);
+                    case "UINT64" -> nodes.textNode(Long.toUnsignedString(varint));
+                    default -> nodes.numberNode(varint);
+                });
+            }
+            for (int fixed32 : value.getFixed32List()) {
+                values.add("FLOAT".equals(type) ? nodes.numberNode(Float.intBitsToFloat(fixed32)) : nodes.numberNode(fixed32));
+            }
+            for (long fixed64 : value.getFixed64List()) {
+                values.add("DOUBLE".equals(type) ? nodes.numberNode(Double.longBitsToDouble(fixed64)) : nodes.numberNode(fixed64));
+            }
+            for (ByteString bytes : value.getLengthDelimitedList()) {
+                values.add(toJson(bytes, type));
+            }
+            for (UnknownFieldSet group : value.getGroupList()) {
+                values.add(toJson(group, Map.of()));
+            }
+            return values;
+        }
+
+        private static JsonNode toJson(ByteString bytes, String type) {
+            return switch (type) {
+                case "STRING" -> JsonNodeFactory.instance.textNode(bytes.toStringUtf8());
+                case "BYTES" -> JsonNodeFactory.instance.binaryNode(bytes.toByteArray());
+                default -> toJsonGuessingType(bytes);
+            };
+        }
+
+        /**
+         * Nested messages, strings and bytes look the same on the wire.
+         */
+        private static JsonNode toJsonGuessingType(ByteString bytes) {
+            try {
+                return toJson(UnknownFieldSet.parseFrom(bytes), Map.of());
+            } catch (InvalidProtocolBufferException e) {
+                return bytes.isValidUtf8()
+                        ? JsonNodeFactory.instance.textNode(bytes.toStringUtf8())
+                        : JsonNodeFactory.instance.binaryNode(bytes.toByteArray());
+            }
+        }
+
+    }
+
+}
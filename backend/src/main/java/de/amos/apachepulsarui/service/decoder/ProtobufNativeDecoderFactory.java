@@ -0,0 +1,104 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.util.JsonFormat;
+import lombok.RequiredArgsConstructor;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Decodes native Protobuf payloads with the message descriptor shipped in the schema definition, which holds the
+ * base64 encoded file descriptor set together with the name of the root message type.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProtobufNativeDecoderFactory implements PayloadDecoderFactory {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Set<SchemaType> getSchemaTypes() {
+        return Set.of(SchemaType.PROTOBUF_NATIVE);
+    }
+
+    @Override
+    public PayloadDecoder create(SchemaInfo schemaInfo, PayloadDecoderRegistry registry)
+            throws IOException, DescriptorValidationException {
+        JsonNode definition = objectMapper.readTree(schemaInfo.getSchemaDefinition());
+        FileDescriptorSet fileDescriptorSet = FileDescriptorSet.parseFrom(
+                Base64.getDecoder().decode(definition.path("fileDescriptorSet").asText()));
+        Map<String, FileDescriptorProto> fileProtos = fileDescriptorSet.getFileList().stream()
+                .collect(Collectors.toMap(FileDescriptorProto::getName, Function.identity()));
+
+        FileDescriptor rootFile = build(definition.path("rootFileDescriptorName").asText(), fileProtos, new HashMap<>());
+        Descriptor descriptor = findMessageType(rootFile, definition.path("rootMessageTypeName").asText());
+        return new ProtobufNativeDecoder(descriptor, JsonFormat.printer());
+    }
+
+    /**
+     * File descriptors can only be built once all files they import have been built.
+     */
+    private static FileDescriptor build(String fileName,
+                                        Map<String, FileDescriptorProto> fileProtos,
+                                        Map<String, FileDescriptor> built) throws DescriptorValidationException {
+        FileDescriptor fileDescriptor = built.get(fileName);
+        if (fileDescriptor != null) {
+            return fileDescriptor;
+        }
+        FileDescriptorProto fileProto = fileProtos.get(fileName);
+        if (fileProto == null) {
+            throw new IllegalArgumentException("File descriptor set misses file '%s'".formatted(fileName));
+        }
+        FileDescriptor[] dependencies = new FileDescriptor[fileProto.getDependencyCount()];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = build(fileProto.getDependency(i), fileProtos, built);
+        }
+        fileDescriptor = FileDescriptor.buildFrom(fileProto, dependencies);
+        built.put(fileName, fileDescriptor);
+        return fileDescriptor;
+    }
+
+    private static Descriptor findMessageType(FileDescriptor file, String fullName) {
+        String packagePrefix = file.getPackage().isEmpty() ? "" : file.getPackage() + ".";
+        String[] path = fullName.substring(packagePrefix.length()).split("\\.");
+        Descriptor descriptor = file.findMessageTypeByName(path[0]);
+        for (int i = 1; i < path.length && descriptor != null; i++) {
+            descriptor = descriptor.findNestedTypeByName(path[i]);
+        }
+        if (descriptor == null) {
+            throw new IllegalArgumentException("File '%s' has no message type '%s'".formatted(file.getName(), fullName));
+        }
+        return descriptor;
+    }
+
+    private record ProtobufNativeDecoder(Descriptor descriptor, JsonFormat.Printer printer) implements PayloadDecoder {
+
+        @Override
+        public String decode(byte[] payload) throws IOException {
+            return printer.print(DynamicMessage.parseFrom(descriptor, payload));
+        }
+
+        @Override
+        public boolean isJson() {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,53 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the schemas of topics per schema version. Versions are loaded asynchronously the first time a
+ * message written with them is decoded; concurrent lookups of the same version share a single admin call. Failed
+ * loads are not cached, so they are retried with the next lookup.
+ */
+@Component
+public class SchemaVersionCache {
+
+    public static final String CACHE_NAME = "messages.schemaVersions";
+
+    private final AsyncLoadingCache<SchemaVersion, SchemaInfo> schemaInfos;
+
+    @SuppressWarnings("unchecked")
+    public SchemaVersionCache(PulsarAdmin pulsarAdmin,
+                              CaffeineCacheManager cacheManager,
+                              @Value("${messages.schema-versions.cache-size}") long maximumSize,
+                              @Value("${messages.schema-versions.expire-after-write-minutes}") long expireAfterWriteMinutes) {
+        this.schemaInfos = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                // versions of a topic deleted and created again with another schema must not stick forever
+                .expireAfterWrite(expireAfterWriteMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .buildAsync((SchemaVersion key, Executor executor) -> pulsarAdmin.schemas()
+                        .getSchemaInfoAsync(key.topic(), key.version()));
+        cacheManager.registerCustomCache(CACHE_NAME, (Cache<Object, Object>) (Cache<?, ?>) schemaInfos.synchronous());
+    }
+
+    /**
+     * @return The schema the topic had in the given version, completing exceptionally if it can't be fetched.
+     */
+    public CompletableFuture<SchemaInfo> getSchemaInfo(String topic, long version) {
+        return schemaInfos.get(new SchemaVersion(topic, version));
+    }
+
+    private record SchemaVersion(String topic, long version) {
+    }
+
+}
@@ -0,0 +1,25 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * A message about to be written to a streamed response. Unlike a {@link de.amos.apachepulsarui.dto.MessageDto} its
+ * payload is not decoded up front but written straight into the response, embedded as JSON value if it decodes to
+ * JSON.
+ */
+public interface StreamedMessage {
+
+    String getMessageId();
+
+    /**
+     * Writes the message as JSON object with the fields of a {@link de.amos.apachepulsarui.dto.MessageDto}.
+     *
+     * @param decodePayload False to write the payload as UTF-8 string, used once decoding it failed.
+     * @throws IOException If writing or decoding the payload failed, possibly after some tokens have already been
+     *                     written.
+     */
+    void writeJson(JsonGenerator generator, boolean decodePayload) throws IOException;
+
+}
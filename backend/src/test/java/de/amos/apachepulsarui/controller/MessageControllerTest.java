@@ -5,8 +5,25 @@
 
 package de.amos.apachepulsarui.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.amos.apachepulsarui.dto.AvroFieldStatsDto;
+import de.amos.apachepulsarui.dto.LatestValuesDto;
+import de.amos.apachepulsarui.dto.MessageAnalyticsDto;
 import de.amos.apachepulsarui.dto.MessageDto;
+import de.amos.apachepulsarui.dto.MessagePageDto;
+import de.amos.apachepulsarui.dto.MessageSearchResultDto;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import de.amos.apachepulsarui.service.AvroFieldStatsService;
+import de.amos.apachepulsarui.service.LatestValueCache;
+import de.amos.apachepulsarui.service.MessageAnalyticsService;
+import de.amos.apachepulsarui.service.MessageExportService;
+import de.amos.apachepulsarui.service.MessageFilter;
+import de.amos.apachepulsarui.service.MessageLookupService;
+import de.amos.apachepulsarui.service.MessageSearchService;
 import de.amos.apachepulsarui.service.MessageService;
+import de.amos.apachepulsarui.service.MessageTailService;
+import de.amos.apachepulsarui.service.decoder.PayloadDecoder;
+import de.amos.apachepulsarui.service.decoder.StreamedMessage;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -15,16 +32,32 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import static java.util.Collections.emptyList;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(MessageController.class)
@@ -36,13 +69,34 @@ public class MessageControllerTest {
     @MockBean
     MessageService messageService;
 
+    @MockBean
+    MessageSearchService messageSearchService;
+
+    @MockBean
+    MessageLookupService messageLookupService;
+
+    @MockBean
+    LatestValueCache latestValueCache;
+
+    @MockBean
+    MessageExportService messageExportService;
+
+    @MockBean
+    MessageTailService messageTailService;
+
+    @MockBean
+    MessageAnalyticsService messageAnalyticsService;
+
+    @MockBean
+    AvroFieldStatsService avroFieldStatsService;
+
     @Test
     void getMessages_returnsMessages() throws Exception {
         Set<MessageDto> messageDtos = Set.of(
                 aMessage("persistent://public/default/spaceships", "Nebuchadnezzar"),
                 aMessage("persistent://public/default/spaceships", "Serenity")
         );
-        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/spaceships", 5, emptyList(), emptyList()))
+        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/spaceships", 5, emptyList(), emptyList(), MessageFilter.NONE))
                 .thenReturn(messageDtos);
 
         mockMvc.perform(get("/messages?topic=persistent://public/default/spaceships&numMessages=5")
@@ -59,7 +113,7 @@ public class MessageControllerTest {
             messageDtos.add(aMessage("persistent://public/default/test", "Test" + i));
         }
 
-        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/test", 10,emptyList(),emptyList()))
+        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/test", 10,emptyList(),emptyList(), MessageFilter.NONE))
                 .thenReturn(messageDtos);
 
         mockMvc.perform(get("/messages?topic=persistent://public/default/test")
@@ -75,7 +129,7 @@ public class MessageControllerTest {
             messageDtos.add(aMessage("persistent://public/default/test", "Test" + i));
         }
 
-        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/test", 10,List.of("pro"),emptyList()))
+        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/test", 10,List.of("pro"),emptyList(), MessageFilter.NONE))
                 .thenReturn(messageDtos);
 
         mockMvc.perform(get("/messages?topic=persistent://public/default/test&producers=pro")
@@ -91,7 +145,7 @@ public class MessageControllerTest {
             messageDtos.add(aMessage("persistent://public/default/test", "Test" + i));
         }
 
-        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/test", 10,emptyList(),List.of("sub")))
+        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/test", 10,emptyList(),List.of("sub"), MessageFilter.NONE))
                 .thenReturn(messageDtos);
 
         mockMvc.perform(get("/messages?topic=persistent://public/default/test&subscriptions=sub")
@@ -100,6 +154,40 @@ public class MessageControllerTest {
                 .andExpect(jsonPath("$.messages", hasSize(10)));
     }
 
+    @Test
+    void getMessages_withTimeWindow_returnsMessagesOfWindow() throws Exception {
+        Set<MessageDto> messageDtos = Set.of(aMessage("persistent://public/default/test", "Test"));
+
+        Mockito.when(messageService.getMessagesPublishedBetweenFiltered("persistent://public/default/test", 1000L, Long.MAX_VALUE, 10, emptyList(), emptyList(), MessageFilter.NONE))
+                .thenReturn(messageDtos);
+
+        mockMvc.perform(get("/messages?topic=persistent://public/default/test&from=1000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages", hasSize(1)));
+    }
+
+    @Test
+    void getMessages_withMetadataFilter_passesFilterToService() throws Exception {
+        Set<MessageDto> messageDtos = Set.of(aMessage("persistent://public/default/test", "Test"));
+        MessageFilter messageFilter = MessageFilter.of("ship-1", List.of("origin:earth", "crew:4"), 1000L, null);
+
+        Mockito.when(messageService.getLatestMessagesFiltered("persistent://public/default/test", 10, emptyList(), emptyList(), messageFilter))
+                .thenReturn(messageDtos);
+
+        mockMvc.perform(get("/messages?topic=persistent://public/default/test&key=ship-1&property=origin:earth&property=crew:4&eventTimeFrom=1000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages", hasSize(1)));
+    }
+
+    @Test
+    void getMessages_withInvalidPropertyFilter_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/messages?topic=persistent://public/default/test&property=origin")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getMessages_withMissingQueryParameters_returnsBadRequest() throws Exception {
         mockMvc.perform(get("/messages")
@@ -107,6 +195,267 @@ public class MessageControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void getMessagePage_withCursor_returnsPageAndCursors() throws Exception {
+        MessagePageDto page = new MessagePageDto(
+                List.of(aMessage("persistent://public/default/spaceships", "Serenity")),
+                "older",
+                "newer"
+        );
+        Mockito.when(messageService.getMessagePage("persistent://public/default/spaceships", "abc", MessageService.PageDirection.NEWER, 1))
+                .thenReturn(page);
+
+        mockMvc.perform(get("/messages/page?topic=persistent://public/default/spaceships&cursor=abc&direction=NEWER&pageSize=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages[0].payload", equalTo("Serenity")))
+                .andExpect(jsonPath("$.olderCursor", equalTo("older")))
+                .andExpect(jsonPath("$.newerCursor", equalTo("newer")));
+    }
+
+    @Test
+    void getMessagePage_withNegativePageSize_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/messages/page?topic=persistent://public/default/spaceships&pageSize=-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getLatestValues_withNegativePageOrPageSize_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/messages/latest-values?topic=persistent://public/default/spaceships&page=-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/messages/latest-values?topic=persistent://public/default/spaceships&pageSize=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamMessages_writesOneJsonLinePerMessage() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Predicate<StreamedMessage> sink = invocation.getArgument(3);
+            sink.test(aStreamedMessage("1:1:-1", "{\"name\":\"Nebuchadnezzar\"}"));
+            sink.test(aStreamedMessage("1:2:-1", "{\"name\":\"Serenity\"}"));
+            return null;
+        }).when(messageService).streamLatestMessages(eq("persistent://public/default/spaceships"), eq(5), eq(emptyList()), any());
+
+        MvcResult result = mockMvc.perform(get("/messages/stream?topic=persistent://public/default/spaceships&numMessages=5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"messageId\":\"1:1:-1\",\"payload\":{\"name\":\"Nebuchadnezzar\"}}\n" +
+                        "{\"messageId\":\"1:2:-1\",\"payload\":{\"name\":\"Serenity\"}}\n"));
+    }
+
+    @Test
+    void streamMessages_writesPrettyPrintedPayloadsOnOneLinePerMessage() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Predicate<StreamedMessage> sink = invocation.getArgument(3);
+            sink.test(aDecodedStreamedMessage("1:1:-1", "{\n  \"name\" : \"Nebuchadnezzar\",\n  \"crew\" : [ 1, 2 ]\n}"));
+            sink.test(aDecodedStreamedMessage("1:2:-1", "\n{\"name\":\"Serenity\"}\n"));
+            return null;
+        }).when(messageService).streamLatestMessages(eq("persistent://public/default/spaceships"), eq(5), eq(emptyList()), any());
+
+        MvcResult result = mockMvc.perform(get("/messages/stream?topic=persistent://public/default/spaceships&numMessages=5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"messageId\":\"1:1:-1\",\"payload\":{\"name\":\"Nebuchadnezzar\",\"crew\":[1,2]}}\n" +
+                        "{\"messageId\":\"1:2:-1\",\"payload\":{\"name\":\"Serenity\"}}\n"));
+    }
+
+    @Test
+    void tailMessages_streamsEmittedFrames() throws Exception {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        Mockito.when(messageTailService.tail("persistent://public/default/spaceships", MessageTailService.TailPolicy.SAMPLE))
+                .thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/messages/tail?topic=persistent://public/default/spaceships&policy=SAMPLE"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send("event: message\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8), MediaType.TEXT_EVENT_STREAM);
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string("event: message\ndata: {}\n\n"));
+    }
+
+    @Test
+    void exportMessages_streamsExportAsAttachment() throws Exception {
+        var range = new MessageExportService.ExportRange(null, null, null, 1000L, null);
+        var export = Mockito.mock(MessageExportService.MessageExport.class);
+        Mockito.when(export.getFileName()).thenReturn("spaceships.ndjson.gz");
+        Mockito.doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(0);
+            output.write(new byte[]{1, 2, 3});
+            return null;
+        }).when(export).writeTo(any());
+        Mockito.when(messageExportService.prepare("persistent://public/default/spaceships", range, MessageExportService.ExportFormat.NDJSON_GZIP))
+                .thenReturn(export);
+
+        MvcResult result = mockMvc.perform(get("/messages/export?topic=persistent://public/default/spaceships&from=1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"spaceships.ndjson.gz\""))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void exportMessages_asAvroWithoutAvroSchema_returnsBadRequest() throws Exception {
+        Mockito.when(messageExportService.prepare(eq("persistent://public/default/spaceships"), any(), eq(MessageExportService.ExportFormat.AVRO)))
+                .thenThrow(new BadRequestException.UnsupportedExportFormat("Topic has no schema."));
+
+        mockMvc.perform(get("/messages/export?topic=persistent://public/default/spaceships&format=AVRO"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void analyzeMessages_returnsSummary() throws Exception {
+        MessageAnalyticsDto analytics = new MessageAnalyticsDto(
+                2,
+                new MessageAnalyticsDto.PayloadSizes(30, 10, 20, 15, 10, 20, 20, 20),
+                new MessageAnalyticsDto.PublishRate(1000L, 2000L, 2, 1, 1000L, 2),
+                Map.of("pro", 2L),
+                2,
+                1
+        );
+        Mockito.when(messageAnalyticsService.analyze("persistent://public/default/spaceships", 10000, null, null))
+                .thenReturn(analytics);
+
+        mockMvc.perform(get("/messages/analytics?topic=persistent://public/default/spaceships"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages", equalTo(2)))
+                .andExpect(jsonPath("$.payloadSizes.p99", equalTo(20)))
+                .andExpect(jsonPath("$.messagesPerProducer.pro", equalTo(2)))
+                .andExpect(jsonPath("$.estimatedDistinctKeys", equalTo(1)));
+    }
+
+    @Test
+    void getAvroFieldStats_withoutAvroSchema_returnsBadRequest() throws Exception {
+        Mockito.when(avroFieldStatsService.sample("persistent://public/default/spaceships", 1000, 5))
+                .thenThrow(new BadRequestException.NoAvroSchema("Topic has a STRING schema."));
+
+        mockMvc.perform(get("/messages/avro-stats?topic=persistent://public/default/spaceships"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchMessages_returnsMatchesAndProgress() throws Exception {
+        MessageSearchResultDto result = new MessageSearchResultDto(
+                List.of(aMessage("persistent://public/default/spaceships", "Serenity")),
+                500,
+                1,
+                true,
+                "cursor"
+        );
+        Mockito.when(messageSearchService.searchLatest(eq("persistent://public/default/spaceships"), any(), isNull(), eq(500), eq(100)))
+                .thenReturn(result);
+
+        mockMvc.perform(get("/messages/search?topic=persistent://public/default/spaceships&query=Seren&numMessages=500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages[0].payload", equalTo("Serenity")))
+                .andExpect(jsonPath("$.scanned", equalTo(500)))
+                .andExpect(jsonPath("$.matched", equalTo(1)))
+                .andExpect(jsonPath("$.complete", equalTo(true)));
+    }
+
+    @Test
+    void searchMessages_withInvalidRegex_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/messages/search?topic=persistent://public/default/spaceships&query=(&mode=REGEX"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getMessage_returnsWholePayload() throws Exception {
+        Mockito.when(messageLookupService.getMessage("persistent://public/default/spaceships", "42:7:-1"))
+                .thenReturn(Optional.of(aMessage("persistent://public/default/spaceships", "Serenity")));
+
+        mockMvc.perform(get("/messages/42:7:-1?topic=persistent://public/default/spaceships"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payload", equalTo("Serenity")));
+    }
+
+    @Test
+    void getMessage_withUnknownMessage_returnsNotFound() throws Exception {
+        Mockito.when(messageLookupService.getMessage("persistent://public/default/spaceships", "42:8:-1"))
+                .thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/messages/42:8:-1?topic=persistent://public/default/spaceships"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getLatestValues_returnsPageOfLatestValues() throws Exception {
+        Mockito.when(latestValueCache.getLatestValues("persistent://public/default/spaceships",
+                        LatestValueCache.LatestValueOrder.PUBLISH_TIME, 1, 2, true))
+                .thenReturn(new LatestValuesDto(List.of(aMessage("persistent://public/default/spaceships", "Serenity")), 3, true));
+
+        mockMvc.perform(get("/messages/latest-values?topic=persistent://public/default/spaceships&order=PUBLISH_TIME&page=1&pageSize=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages[0].payload", equalTo("Serenity")))
+                .andExpect(jsonPath("$.totalKeys", equalTo(3)))
+                .andExpect(jsonPath("$.complete", equalTo(true)));
+    }
+
+    private static StreamedMessage aStreamedMessage(String messageId, String jsonPayload) {
+        return new StreamedMessage() {
+            @Override
+            public String getMessageId() {
+                return messageId;
+            }
+
+            @Override
+            public void writeJson(JsonGenerator generator, boolean decodePayload) throws IOException {
+                generator.writeStartObject();
+                generator.writeStringField("messageId", messageId);
+                generator.writeFieldName("payload");
+                generator.writeRawValue(jsonPayload);
+                generator.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * @param decodedPayload The JSON a payload decoder produces for the message.
+     */
+    private static StreamedMessage aDecodedStreamedMessage(String messageId, String decodedPayload) {
+        PayloadDecoder decoder = new PayloadDecoder() {
+            @Override
+            public String decode(byte[] payload) {
+                return decodedPayload;
+            }
+
+            @Override
+            public boolean isJson() {
+                return true;
+            }
+        };
+        return new StreamedMessage() {
+            @Override
+            public String getMessageId() {
+                return messageId;
+            }
+
+            @Override
+            public void writeJson(JsonGenerator generator, boolean decodePayload) throws IOException {
+                generator.writeStartObject();
+                generator.writeStringField("messageId", messageId);
+                generator.writeFieldName("payload");
+                decoder.writeJson(new byte[0], generator);
+                generator.writeEndObject();
+            }
+        };
+    }
+
     @NotNull
     private static MessageDto aMessage(String topic, String payload) {
         return MessageDto.create(topic, payload);
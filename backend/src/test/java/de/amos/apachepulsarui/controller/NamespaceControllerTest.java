@@ -10,6 +10,7 @@ import de.amos.apachepulsarui.dto.NamespaceDetailDto;
 import de.amos.apachepulsarui.dto.NamespaceDto;
 import de.amos.apachepulsarui.service.NamespaceService;
 import de.amos.apachepulsarui.service.TenantService;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +37,9 @@ public class NamespaceControllerTest {
     @MockBean
     TenantService tenantService;
 
+    @MockBean
+    private TopologySnapshot topologySnapshot;
+
     @Test
     void getAll_WithTenants_returnsAllNamespacesFromTenants() throws Exception {
 
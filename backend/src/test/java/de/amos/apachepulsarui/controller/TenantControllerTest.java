@@ -8,6 +8,7 @@ package de.amos.apachepulsarui.controller;
 
 import de.amos.apachepulsarui.dto.TenantDto;
 import de.amos.apachepulsarui.service.TenantService;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import org.apache.pulsar.common.policies.data.TenantInfo;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -21,6 +22,7 @@ import java.util.List;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.Matchers.equalTo;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -33,6 +35,9 @@ public class TenantControllerTest {
     @MockBean
     TenantService tenantService;
 
+    @MockBean
+    TopologySnapshot topologySnapshot;
+
     @Test
     void getAllTenants_returnsAllTenants() throws Exception {
 
@@ -61,4 +66,14 @@ public class TenantControllerTest {
 
     }
 
+    @Test
+    void getAllTenants_returnsSnapshotAge() throws Exception {
+        Mockito.when(tenantService.getAllFiltered(emptyList())).thenReturn(emptyList());
+        Mockito.when(topologySnapshot.getAgeSeconds()).thenReturn(12L);
+
+        mockMvc.perform(get("/tenant/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TopologySnapshot.AGE_HEADER, "12"));
+    }
+
 }
@@ -9,6 +9,7 @@ import de.amos.apachepulsarui.dto.*;
 import de.amos.apachepulsarui.service.NamespaceService;
 import de.amos.apachepulsarui.service.TenantService;
 import de.amos.apachepulsarui.service.TopicService;
+import de.amos.apachepulsarui.service.TopologySnapshot;
 import net.bytebuddy.utility.RandomString;
 import org.apache.pulsar.common.policies.data.ConsumerStats;
 import org.apache.pulsar.common.policies.data.PublisherStats;
@@ -45,6 +46,9 @@ public class TopicControllerTest {
     @MockBean
     TenantService tenantService;
 
+    @MockBean
+    private TopologySnapshot topologySnapshot;
+
     @MockBean
     private TopicStats topicStats;
 
@@ -31,6 +31,9 @@ public class AbstractIntegrationTest {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    protected TopologySnapshot topologySnapshot;
+
     private static final PulsarContainer pulsar = new PulsarContainer(DockerImageName.parse("apachepulsar/pulsar:3.0.0"));
 
     static {
@@ -48,6 +51,7 @@ public class AbstractIntegrationTest {
 
         cacheManager.getCacheNames()
                 .forEach(cache -> Objects.requireNonNull(cacheManager.getCache(cache)).clear());
+        topologySnapshot.refresh();
     }
 
     static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
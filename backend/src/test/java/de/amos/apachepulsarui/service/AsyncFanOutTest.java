@@ -0,0 +1,66 @@
+package de.amos.apachepulsarui.service;
+
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncFanOutTest {
+
+    private static final Executor DELAYED = CompletableFuture.delayedExecutor(10, TimeUnit.MILLISECONDS);
+
+    @Test
+    void collectOrdered_keepsInputOrder() throws PulsarAdminException {
+        List<Integer> inputs = List.of(5, 4, 3, 2, 1);
+
+        List<Integer> results = AsyncFanOut.collectOrdered(inputs, 3,
+                i -> CompletableFuture.supplyAsync(() -> i * 10,
+                        CompletableFuture.delayedExecutor(i * 5L, TimeUnit.MILLISECONDS)));
+
+        assertThat(results).containsExactly(50, 40, 30, 20, 10);
+    }
+
+    @Test
+    void collectOrdered_neverExceedsMaxInFlight() throws PulsarAdminException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+
+        AsyncFanOut.collectOrdered(List.of(1, 2, 3, 4, 5, 6, 7, 8), 2, i -> {
+            maxObserved.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                return i;
+            }, DELAYED);
+        });
+
+        assertThat(maxObserved.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void collectOrdered_rethrowsAdminException() {
+        PulsarAdminException notFound = new PulsarAdminException("gone");
+
+        assertThatThrownBy(() -> AsyncFanOut.collectOrdered(List.of(1, 2), 2,
+                i -> i == 2 ? CompletableFuture.failedFuture(notFound) : CompletableFuture.completedFuture(i)))
+                .isSameAs(notFound);
+    }
+
+    @Test
+    void collectOrdered_returnsPartialResultsOnTimeout() throws PulsarAdminException {
+        CompletableFuture<Integer> never = new CompletableFuture<>();
+
+        List<Integer> results = AsyncFanOut.collectOrdered(List.of(1, 2, 3), 3, 50,
+                i -> i == 2 ? never : CompletableFuture.completedFuture(i));
+
+        assertThat(results).containsExactly(1, null, 3);
+        assertThat(never).isCancelled();
+    }
+
+}
@@ -0,0 +1,70 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.dto.AvroFieldStatsDto;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvroFieldColumnsTest {
+
+    private static final Schema ENGINE = SchemaBuilder.record("Engine").fields()
+            .requiredInt("power")
+            .endRecord();
+
+    private static final Schema SPACESHIP = SchemaBuilder.record("Spaceship").fields()
+            .requiredString("name")
+            .optionalLong("crew")
+            .name("engine").type().optional().type(ENGINE)
+            .endRecord();
+
+    @Test
+    void summarize_computesStatsPerField() {
+        AvroFieldColumns columns = new AvroFieldColumns(SPACESHIP, 4);
+        columns.set(0, aSpaceship("Serenity", 9L, 100));
+        columns.set(1, aSpaceship("Serenity", null, 300));
+        columns.set(2, aSpaceship("Nebuchadnezzar", 9L, null));
+        columns.setUndecodable(3);
+
+        List<AvroFieldStatsDto.FieldStats> stats = columns.summarize(1);
+
+        assertThat(columns.countUndecodable()).isEqualTo(1);
+        assertThat(stats).extracting(AvroFieldStatsDto.FieldStats::getPath)
+                .containsExactly("name", "crew", "engine.power");
+
+        AvroFieldStatsDto.FieldStats name = stats.get(0);
+        assertThat(name.getNullRatio()).isZero();
+        assertThat(name.getDistinct()).isEqualTo(2L);
+        assertThat(name.getTopValues()).containsExactly(new AvroFieldStatsDto.ValueCount("Serenity", 2));
+
+        AvroFieldStatsDto.FieldStats crew = stats.get(1);
+        assertThat(crew.getType()).isEqualTo("long?");
+        assertThat(crew.getNullRatio()).isEqualTo(1.0 / 3);
+        assertThat(crew.getMin()).isEqualTo(9.0);
+        assertThat(crew.getDistinct()).isEqualTo(1L);
+
+        AvroFieldStatsDto.FieldStats power = stats.get(2);
+        assertThat(power.getNullRatio()).isEqualTo(1.0 / 3);
+        assertThat(power.getMin()).isEqualTo(100.0);
+        assertThat(power.getMax()).isEqualTo(300.0);
+        assertThat(power.getMean()).isEqualTo(200.0);
+    }
+
+    private static GenericRecord aSpaceship(String name, Long crew, Integer power) {
+        GenericRecord spaceship = new GenericData.Record(SPACESHIP);
+        spaceship.put("name", name);
+        spaceship.put("crew", crew);
+        if (power != null) {
+            GenericRecord engine = new GenericData.Record(ENGINE);
+            engine.put("power", power);
+            spaceship.put("engine", engine);
+        }
+        return spaceship;
+    }
+
+}
@@ -0,0 +1,31 @@
+package de.amos.apachepulsarui.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_forFewValues_isAlmostExact() {
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            hyperLogLog.add("key-" + (i % 10));
+        }
+
+        assertThat(hyperLogLog.estimate()).isBetween(9L, 11L);
+    }
+
+    @Test
+    void estimate_forManyValues_staysWithinStandardError() {
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        for (int i = 0; i < 1_000_000; i++) {
+            hyperLogLog.add("key-" + i);
+        }
+
+        // three times the standard error of 2^14 registers
+        assertThat((double) hyperLogLog.estimate()).isCloseTo(1_000_000, within(1_000_000 * 0.025));
+    }
+
+}
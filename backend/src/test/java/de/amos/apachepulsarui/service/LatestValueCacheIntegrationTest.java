@@ -0,0 +1,64 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.dto.LatestValuesDto;
+import de.amos.apachepulsarui.dto.MessageDto;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatestValueCacheIntegrationTest extends AbstractIntegrationTest {
+
+    private static final String TOPICNAME = "persistent://public/default/latest-values-integration-test";
+
+    @Autowired
+    private LatestValueCache latestValueCache;
+
+    @Autowired
+    private PulsarClient pulsarClient;
+
+    @Test
+    void getLatestValues_returnsLatestMessagePerKey() throws Exception {
+        try (Producer<byte[]> producer = pulsarClient.newProducer().topic(TOPICNAME).create()) {
+            send(producer, "b", "b1");
+            send(producer, "a", "a1");
+            send(producer, "c", "c1");
+            send(producer, "b", "b2");
+            // tombstone
+            send(producer, "c", "");
+        }
+
+        LatestValuesDto latestValues = latestValueCache.getLatestValues(TOPICNAME, LatestValueCache.LatestValueOrder.KEY, 0, 10, true);
+
+        assertThat(latestValues.getMessages()).extracting(MessageDto::getPayload).containsExactly("a1", "b2");
+        assertThat(latestValues.getTotalKeys()).isEqualTo(2);
+        assertThat(latestValues.isComplete()).isTrue();
+    }
+
+    @Test
+    void getLatestValues_afterRefresh_includesMessagesSentInBetween() throws Exception {
+        try (Producer<byte[]> producer = pulsarClient.newProducer().topic(TOPICNAME).create()) {
+            send(producer, "a", "a1");
+            send(producer, "b", "b1");
+
+            var firstPage = latestValueCache.getLatestValues(TOPICNAME, LatestValueCache.LatestValueOrder.PUBLISH_TIME, 0, 1, true);
+            send(producer, "a", "a2");
+            var withoutRefresh = latestValueCache.getLatestValues(TOPICNAME, LatestValueCache.LatestValueOrder.PUBLISH_TIME, 0, 1, false);
+            var refreshed = latestValueCache.getLatestValues(TOPICNAME, LatestValueCache.LatestValueOrder.PUBLISH_TIME, 0, 1, true);
+
+            assertThat(firstPage.getMessages()).extracting(MessageDto::getPayload).containsExactly("b1");
+            assertThat(withoutRefresh.getMessages()).extracting(MessageDto::getPayload).containsExactly("b1");
+            assertThat(refreshed.getMessages()).extracting(MessageDto::getPayload).containsExactly("a2");
+            assertThat(refreshed.getTotalKeys()).isEqualTo(2);
+        }
+    }
+
+    private static void send(Producer<byte[]> producer, String key, String value) throws Exception {
+        producer.newMessage().key(key).value(value.getBytes(StandardCharsets.UTF_8)).send();
+    }
+
+}
@@ -0,0 +1,54 @@
+package de.amos.apachepulsarui.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LogLinearHistogramTest {
+
+    @Test
+    void valueAtQuantile_forSmallValues_isExact() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.valueAtQuantile(0.5)).isEqualTo(50);
+        assertThat(histogram.valueAtQuantile(0.99)).isEqualTo(99);
+        assertThat(histogram.valueAtQuantile(1)).isEqualTo(100);
+        assertThat(histogram.getMean()).isEqualTo(50.5);
+    }
+
+    @Test
+    void valueAtQuantile_forLargeValues_staysWithinRelativeError() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat((double) histogram.valueAtQuantile(0.5)).isCloseTo(500_000, within(500_000 * 0.01));
+        assertThat((double) histogram.valueAtQuantile(0.999)).isCloseTo(999_000, within(999_000 * 0.01));
+        assertThat(histogram.getMin()).isEqualTo(1);
+        assertThat(histogram.getMax()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void valueAtQuantile_neverExceedsMax() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.record(Integer.MAX_VALUE - 1);
+
+        assertThat(histogram.valueAtQuantile(0.5)).isEqualTo(Integer.MAX_VALUE - 1);
+    }
+
+    @Test
+    void highestValueOf_isHighestValueOfSameBucket() {
+        for (int value : new int[]{0, 127, 128, 129, 255, 256, 1_000_000, Integer.MAX_VALUE}) {
+            int index = LogLinearHistogram.indexOf(value);
+
+            assertThat(LogLinearHistogram.highestValueOf(index)).isGreaterThanOrEqualTo(value);
+            assertThat(LogLinearHistogram.indexOf((int) LogLinearHistogram.highestValueOf(index))).isEqualTo(index);
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.PulsarApiException;
+import de.amos.apachepulsarui.service.ReaderPool.PooledReader;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.admin.Topics;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.api.Reader;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.apache.pulsar.common.policies.data.ManagedLedgerInternalStats.LedgerInfo;
+import org.apache.pulsar.common.policies.data.PersistentTopicInternalStats;
+import org.apache.pulsar.common.policies.data.TopicStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MessageBrowserTest {
+
+    private static final String TOPIC = "persistent://public/default/tatooine";
+    private static final long LEDGER = 42;
+
+    @Mock
+    private PulsarAdmin pulsarAdmin;
+    @Mock
+    private Topics topics;
+    @Mock
+    private TopicStats topicStats;
+    @Mock
+    private ReaderPool readerPool;
+    @Mock
+    private PooledReader pooledReader;
+    @Mock
+    private Reader<byte[]> reader;
+
+    @InjectMocks
+    private MessageBrowser messageBrowser;
+
+    @BeforeEach
+    void setUp() throws PulsarAdminException {
+        ReflectionTestUtils.setField(messageBrowser, "readTimeoutMillis", 1000);
+        when(pulsarAdmin.topics()).thenReturn(topics);
+        when(topics.getStats(TOPIC)).thenReturn(topicStats);
+        when(readerPool.acquire(TOPIC)).thenReturn(pooledReader);
+        when(pooledReader.reader()).thenReturn(reader);
+    }
+
+    @Test
+    void readLatest_readsFromPositionExaminedFromTheEnd() throws Exception {
+        when(topicStats.getMsgInCounter()).thenReturn(10L);
+        Message<byte[]> start = message(7);
+        when(topics.examineMessage(eq(TOPIC), anyString(), eq(3L))).thenReturn(start);
+        readerReturns(message(7), message(8), message(9));
+
+        List<Message<byte[]>> messages = messageBrowser.readLatest(TOPIC, 3);
+
+        assertThat(entryIds(messages)).containsExactly(7L, 8L, 9L);
+        verify(reader).seek(start.getMessageId());
+        verify(pooledReader).close();
+    }
+
+    @Test
+    void readLatest_keepsOnlyLatestMessagesOfBatchedEntries() throws Exception {
+        when(topicStats.getMsgInCounter()).thenReturn(10L);
+        Message<byte[]> start = message(7);
+        when(topics.examineMessage(eq(TOPIC), anyString(), eq(2L))).thenReturn(start);
+        readerReturns(message(7), message(8), message(9));
+
+        List<Message<byte[]>> messages = messageBrowser.readLatest(TOPIC, 2);
+
+        assertThat(entryIds(messages)).containsExactly(8L, 9L);
+    }
+
+    @Test
+    void readLatest_returnsNothingForEmptyTopic() throws Exception {
+        when(topicStats.getMsgInCounter()).thenReturn(0L);
+
+        assertThat(messageBrowser.readLatest(TOPIC, 3)).isEmpty();
+        verify(readerPool, never()).acquire(anyString());
+    }
+
+    @Test
+    void readAfter_skipsTheCursorMessage() throws Exception {
+        MessageId after = id(5);
+        readerReturns(message(5), message(6), message(7), message(8));
+
+        List<Message<byte[]>> messages = messageBrowser.readAfter(TOPIC, after, 2);
+
+        assertThat(entryIds(messages)).containsExactly(6L, 7L);
+        verify(reader).seek(after);
+    }
+
+    @Test
+    void readBefore_stepsBackOverLedgerEntries() throws Exception {
+        when(topics.getInternalStats(TOPIC)).thenReturn(internalStats(10));
+        readerReturns(message(3), message(4), message(5), message(6));
+
+        List<Message<byte[]>> messages = messageBrowser.readBefore(TOPIC, id(5), 2);
+
+        assertThat(entryIds(messages)).containsExactly(3L, 4L);
+        verify(reader).seek(id(3));
+    }
+
+    @Test
+    void readBefore_startsAtBeginningOfShortTopic() throws Exception {
+        when(topics.getInternalStats(TOPIC)).thenReturn(internalStats(10));
+        readerReturns(message(0), message(1), message(2));
+
+        List<Message<byte[]>> messages = messageBrowser.readBefore(TOPIC, id(2), 5);
+
+        assertThat(entryIds(messages)).containsExactly(0L, 1L);
+        verify(reader).seek(MessageId.earliest);
+    }
+
+    @Test
+    void readPublishedBetween_skipsMessagesPublishedAfterTheWindow() throws Exception {
+        // e.g. partitions of a partitioned topic interleaved by the reader
+        readerReturns(message(3, 900), message(4, 1000), message(5, 2500), message(6, 1500), message(7, 3000));
+        List<Message<byte[]>> messages = new ArrayList<>();
+
+        messageBrowser.readPublishedBetween(TOPIC, 1000, 2000, 10, messages::add);
+
+        assertThat(entryIds(messages)).containsExactly(4L, 6L);
+        verify(reader).seek(1000L);
+    }
+
+    @Test
+    void readPublishedBetween_countsSkippedMessagesTowardsMaxMessages() throws Exception {
+        readerReturns(message(3, 1000), message(4, 2500), message(5, 2600), message(6, 1500));
+        List<Message<byte[]>> messages = new ArrayList<>();
+
+        messageBrowser.readPublishedBetween(TOPIC, 1000, 2000, 3, messages::add);
+
+        assertThat(entryIds(messages)).containsExactly(3L);
+    }
+
+    @Test
+    void read_invalidatesReaderOnError() throws Exception {
+        when(reader.hasMessageAvailable()).thenReturn(true);
+        when(reader.readNext(anyInt(), any(TimeUnit.class)))
+                .thenThrow(new PulsarClientException("connection lost"));
+
+        assertThatThrownBy(() -> messageBrowser.readAfter(TOPIC, id(5), 2))
+                .isInstanceOf(PulsarApiException.class);
+        verify(pooledReader).invalidate();
+        verify(pooledReader).close();
+    }
+
+    @SafeVarargs
+    private void readerReturns(Message<byte[]>... messages) throws PulsarClientException {
+        List<Boolean> available = new ArrayList<>();
+        for (int i = 1; i < messages.length; i++) {
+            available.add(true);
+        }
+        available.add(false);
+        when(reader.hasMessageAvailable()).thenReturn(true, available.toArray(Boolean[]::new));
+        when(reader.readNext(anyInt(), any(TimeUnit.class)))
+                .thenReturn(messages[0], Arrays.copyOfRange(messages, 1, messages.length));
+    }
+
+    private static PersistentTopicInternalStats internalStats(long currentLedgerEntries) {
+        LedgerInfo ledger = new LedgerInfo();
+        ledger.ledgerId = LEDGER;
+        PersistentTopicInternalStats internalStats = new PersistentTopicInternalStats();
+        internalStats.ledgers = List.of(ledger);
+        internalStats.currentLedgerEntries = currentLedgerEntries;
+        return internalStats;
+    }
+
+    private static MessageId id(long entryId) {
+        return new MessageIdImpl(LEDGER, entryId, -1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Message<byte[]> message(long entryId) {
+        Message<byte[]> message = mock(Message.class);
+        when(message.getMessageId()).thenReturn(id(entryId));
+        return message;
+    }
+
+    private static Message<byte[]> message(long entryId, long publishTime) {
+        Message<byte[]> message = message(entryId);
+        when(message.getPublishTime()).thenReturn(publishTime);
+        return message;
+    }
+
+    private static List<Long> entryIds(List<Message<byte[]>> messages) {
+        return messages.stream()
+                .map(message -> MessageIds.toImpl(message.getMessageId()).getEntryId())
+                .toList();
+    }
+
+}
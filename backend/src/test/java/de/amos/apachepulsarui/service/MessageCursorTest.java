@@ -0,0 +1,41 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.BadRequestException;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.BatchMessageIdImpl;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageCursorTest {
+
+    @Test
+    void decode_returnsEncodedMessageId() {
+        MessageId messageId = new MessageIdImpl(42, 7, -1);
+
+        assertThat(MessageCursor.decode(MessageCursor.encode(messageId))).isEqualTo(messageId);
+    }
+
+    @Test
+    void decode_keepsBatchIndex() {
+        MessageId messageId = new BatchMessageIdImpl(42, 7, -1, 3);
+
+        assertThat(MessageCursor.decode(MessageCursor.encode(messageId))).isEqualTo(messageId);
+    }
+
+    @Test
+    void encode_isUrlSafe() {
+        String cursor = MessageCursor.encode(new MessageIdImpl(Long.MAX_VALUE, Long.MAX_VALUE, 31));
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void decode_withForeignCursor_throwsBadRequest() {
+        assertThatThrownBy(() -> MessageCursor.decode("not a cursor"))
+                .isInstanceOf(BadRequestException.InvalidCursor.class);
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.Schema;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessageExportServiceIntegrationTest extends AbstractIntegrationTest {
+
+    private static final String TOPICNAME = "persistent://public/default/export-integration-test";
+
+    @Autowired
+    private MessageExportService messageExportService;
+
+    @Autowired
+    private PulsarClient pulsarClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void export_asNdjsonGzip_writesOneLinePerMessage() throws Exception {
+        try (Producer<byte[]> producer = pulsarClient.newProducer().topic(TOPICNAME).create()) {
+            for (int i = 0; i < 5; i++) {
+                producer.send(("message " + i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        var range = new MessageExportService.ExportRange(3, null, null, null, null);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        messageExportService.prepare(TOPICNAME, range, MessageExportService.ExportFormat.NDJSON_GZIP).writeTo(output);
+
+        List<String> payloads = new ArrayList<>();
+        try (var reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode message = objectMapper.readTree(line);
+                payloads.add(message.get("payload").asText());
+            }
+        }
+        assertThat(payloads).containsExactly("message 2", "message 3", "message 4");
+    }
+
+    @Test
+    void export_asAvro_writesRecordsIntoContainerFile() throws Exception {
+        try (Producer<Spaceship> producer = pulsarClient.newProducer(Schema.AVRO(Spaceship.class)).topic(TOPICNAME).create()) {
+            producer.send(new Spaceship("Serenity", 9));
+            producer.send(new Spaceship("Nebuchadnezzar", 11));
+        }
+        var range = new MessageExportService.ExportRange(10, null, null, null, null);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        messageExportService.prepare(TOPICNAME, range, MessageExportService.ExportFormat.AVRO).writeTo(output);
+
+        List<String> names = new ArrayList<>();
+        try (var records = new DataFileStream<>(new ByteArrayInputStream(output.toByteArray()), new GenericDatumReader<GenericRecord>())) {
+            records.forEach(record -> names.add(record.get("name").toString()));
+        }
+        assertThat(names).containsExactly("Serenity", "Nebuchadnezzar");
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Spaceship {
+        private String name;
+        private int crew;
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.exception.BadRequestException;
+import org.apache.pulsar.client.api.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageFilterTest {
+
+    @Test
+    void of_withoutCriteria_isEmpty() {
+        assertThat(MessageFilter.of(null, emptyList(), null, null).isEmpty()).isTrue();
+    }
+
+    @Test
+    void of_withPropertyValueContainingColon_splitsAtFirstColon() {
+        MessageFilter messageFilter = MessageFilter.of(null, List.of("url:http://pulsar"), null, null);
+
+        assertThat(messageFilter.getProperties()).containsExactly(Map.entry("url", "http://pulsar"));
+    }
+
+    @Test
+    void of_withPropertyWithoutValue_throwsBadRequest() {
+        assertThatThrownBy(() -> MessageFilter.of(null, List.of("origin"), null, null))
+                .isInstanceOf(BadRequestException.InvalidMessageFilter.class);
+    }
+
+    @Test
+    void matches_comparesKeyPropertiesAndEventTime() {
+        MessageFilter messageFilter = MessageFilter.of("ship-1", List.of("origin:earth"), 1000L, 2000L);
+
+        assertThat(messageFilter.matches(aMessage("ship-1", "earth", 1500))).isTrue();
+        assertThat(messageFilter.matches(aMessage("ship-2", "earth", 1500))).isFalse();
+        assertThat(messageFilter.matches(aMessage(null, "earth", 1500))).isFalse();
+        assertThat(messageFilter.matches(aMessage("ship-1", "mars", 1500))).isFalse();
+        assertThat(messageFilter.matches(aMessage("ship-1", null, 1500))).isFalse();
+        assertThat(messageFilter.matches(aMessage("ship-1", "earth", 2001))).isFalse();
+    }
+
+    @Test
+    void matches_withEventTimeWindow_rejectsMessagesWithoutEventTime() {
+        MessageFilter messageFilter = MessageFilter.of(null, emptyList(), null, 2000L);
+
+        assertThat(messageFilter.matches(aMessage(null, null, 0))).isFalse();
+        assertThat(MessageFilter.NONE.matches(aMessage(null, null, 0))).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Message<byte[]> aMessage(String key, String origin, long eventTime) {
+        Message<byte[]> message = mock(Message.class);
+        when(message.hasKey()).thenReturn(key != null);
+        when(message.getKey()).thenReturn(key);
+        when(message.getProperty("origin")).thenReturn(origin);
+        when(message.getEventTime()).thenReturn(eventTime);
+        return message;
+    }
+
+}
@@ -0,0 +1,58 @@
+package de.amos.apachepulsarui.service;
+
+import org.apache.pulsar.client.impl.BatchMessageIdImpl;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessagePositionSetTest {
+
+    @Test
+    void contains_findsAddedMessageIdsByTheirStringForm() {
+        MessagePositionSet positions = new MessagePositionSet(2);
+        MessageIdImpl messageId = new MessageIdImpl(42, 7, -1);
+        BatchMessageIdImpl batchMessageId = new BatchMessageIdImpl(42, 8, -1, 3);
+
+        positions.add(messageId);
+        positions.add(batchMessageId);
+
+        assertThat(positions.contains(messageId.toString())).isTrue();
+        assertThat(positions.contains(batchMessageId.toString())).isTrue();
+        assertThat(positions.contains(new MessageIdImpl(42, 8, -1).toString())).isFalse();
+        assertThat(positions.contains(new BatchMessageIdImpl(42, 8, -1, 2).toString())).isFalse();
+    }
+
+    @Test
+    void contains_ignoresPartition() {
+        MessagePositionSet positions = new MessagePositionSet(1);
+
+        positions.add(new MessageIdImpl(42, 7, 3));
+
+        assertThat(positions.contains("42:7:-1")).isTrue();
+    }
+
+    @Test
+    void add_ignoresDuplicates() {
+        MessagePositionSet positions = new MessagePositionSet(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            positions.add(i % 10, i, -1);
+            positions.add(i % 10, i, -1);
+        }
+
+        assertThat(positions.size()).isEqualTo(1000);
+        assertThat(positions.contains(3, 503, -1)).isTrue();
+        assertThat(positions.contains(4, 503, -1)).isFalse();
+    }
+
+    @Test
+    void contains_withMalformedId_returnsFalse() {
+        MessagePositionSet positions = new MessagePositionSet(1);
+        positions.add(1, 2, -1);
+
+        assertThat(positions.contains("1:2")).isFalse();
+        assertThat(positions.contains("a:b:c")).isFalse();
+    }
+
+}
@@ -11,6 +11,7 @@ import lombok.Data;
 import org.apache.pulsar.client.admin.PulsarAdmin;
 import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.MessageRoutingMode;
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.client.api.Schema;
@@ -183,6 +184,90 @@ public class MessageServiceIntegrationTest extends AbstractIntegrationTest {
         assertThat(messageReceived.getSchema()).isEqualTo(schema.getSchemaInfo().getSchemaDefinition());
     }
 
+    @Test
+    void getMessagesPublishedBetween_returnsOnlyMessagesOfWindow() throws Exception {
+        long from;
+        long to;
+        try (Producer<byte[]> producer = pulsarClient.newProducer().topic(TOPICNAME).create()) {
+            producer.send("before".getBytes(StandardCharsets.UTF_8));
+            Thread.sleep(20);
+            from = System.currentTimeMillis();
+            producer.send("within".getBytes(StandardCharsets.UTF_8));
+            to = System.currentTimeMillis();
+            Thread.sleep(20);
+            producer.send("after".getBytes(StandardCharsets.UTF_8));
+        }
+
+        var messages = messageService.getMessagesPublishedBetweenFiltered(TOPICNAME, from, to, 10, emptyList(), emptyList());
+
+        assertThat(messages).extracting(MessageDto::getPayload).containsExactly("within");
+    }
+
+    @Test
+    void getLatestMessagesFiltered_byMetadata_returnsOnlyMatchingMessagesWithMetadata() throws Exception {
+        try (Producer<byte[]> producer = pulsarClient.newProducer().topic(TOPICNAME).create()) {
+            producer.newMessage().key("ship-1").property("origin", "earth").eventTime(1000L)
+                    .value("match".getBytes(StandardCharsets.UTF_8)).send();
+            producer.newMessage().key("ship-1").property("origin", "mars").eventTime(1000L)
+                    .value("other property".getBytes(StandardCharsets.UTF_8)).send();
+            producer.newMessage().key("ship-2").property("origin", "earth").eventTime(1000L)
+                    .value("other key".getBytes(StandardCharsets.UTF_8)).send();
+            producer.newMessage().key("ship-1").property("origin", "earth")
+                    .value("no event time".getBytes(StandardCharsets.UTF_8)).send();
+        }
+        MessageFilter messageFilter = MessageFilter.of("ship-1", List.of("origin:earth"), 500L, 1500L);
+
+        var messages = messageService.getLatestMessagesFiltered(TOPICNAME, 10, emptyList(), emptyList(), messageFilter);
+
+        assertThat(messages).hasSize(1);
+        MessageDto message = messages.iterator().next();
+        assertThat(message.getPayload()).isEqualTo("match");
+        assertThat(message.getKey()).isEqualTo("ship-1");
+        assertThat(message.getProperties()).containsEntry("origin", "earth");
+        assertThat(message.getEventTime()).isEqualTo(1000L);
+    }
+
+    @Test
+    void getNumberOfLatestMessagesFromTopic_repeatedly_includesMessagesSentInBetween() throws Exception {
+        try (Producer<byte[]> producer = pulsarClient.newProducer().topic(TOPICNAME).create()) {
+            producer.send("first".getBytes(StandardCharsets.UTF_8));
+            producer.send("second".getBytes(StandardCharsets.UTF_8));
+
+            var firstPoll = messageService.getLatestMessagesFiltered(TOPICNAME, 2, emptyList(), emptyList());
+            var idlePoll = messageService.getLatestMessagesFiltered(TOPICNAME, 2, emptyList(), emptyList());
+            producer.send("third".getBytes(StandardCharsets.UTF_8));
+            var pollAfterSend = messageService.getLatestMessagesFiltered(TOPICNAME, 2, emptyList(), emptyList());
+
+            assertThat(firstPoll).extracting(MessageDto::getPayload).containsExactly("second", "first");
+            assertThat(idlePoll).extracting(MessageDto::getPayload).containsExactly("second", "first");
+            assertThat(pollAfterSend).extracting(MessageDto::getPayload).containsExactly("third", "second");
+        }
+    }
+
+    @Test
+    void getNumberOfLatestMessagesFromPartitionedTopic_mergesPartitionsByPublishTime() throws Exception {
+        String partitionedTopic = "persistent://public/default/partitioned-service-integration-test";
+        pulsarAdmin.topics().createPartitionedTopic(partitionedTopic, 3);
+        try {
+            try (Producer<byte[]> producer = pulsarClient.newProducer()
+                    .topic(partitionedTopic)
+                    .messageRoutingMode(MessageRoutingMode.RoundRobinPartition)
+                    .enableBatching(false)
+                    .create()) {
+                for (int i = 0; i < 10; i++) {
+                    producer.send(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+                    Thread.sleep(5);
+                }
+            }
+
+            var messages = messageService.getLatestMessagesFiltered(partitionedTopic, 4, emptyList(), emptyList());
+
+            assertThat(messages).extracting(MessageDto::getPayload).containsExactly("9", "8", "7", "6");
+        } finally {
+            pulsarAdmin.topics().deletePartitionedTopic(partitionedTopic, true);
+        }
+    }
+
     @NotNull
     private static MessageDto aMessage() {
         return MessageDto.create(TOPICNAME, "Hello World");
@@ -0,0 +1,72 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import de.amos.apachepulsarui.service.decoder.MessageDecoder;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.Reader;
+import org.apache.pulsar.client.api.ReaderBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MessageTailServiceTest {
+
+    private static final String TATOOINE = "persistent://public/default/tatooine";
+    private static final String NABOO = "persistent://public/default/naboo";
+
+    @Mock
+    private PulsarClient pulsarClient;
+    @Mock
+    private MessageDecoder messageDecoder;
+
+    private ReaderBuilder<byte[]> readerBuilder;
+    private MessageTailService messageTailService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        readerBuilder = mock(ReaderBuilder.class, RETURNS_SELF);
+        when(pulsarClient.newReader()).thenReturn(readerBuilder);
+        when(readerBuilder.create()).thenAnswer(invocation -> mock(Reader.class));
+        messageTailService = new MessageTailService(pulsarClient, messageDecoder, new ObjectMapper(),
+                16, 10, 60, 15, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageTailService.shutdown();
+    }
+
+    @Test
+    void tail_rejectsFurtherTopicsOnceMaxTopicsAreTailed() throws Exception {
+        messageTailService.tail(TATOOINE, MessageTailService.TailPolicy.DROP_OLDEST);
+
+        assertThatThrownBy(() -> messageTailService.tail(NABOO, MessageTailService.TailPolicy.DROP_OLDEST))
+                .isInstanceOf(BadRequestException.TooManyTailedTopics.class);
+        verify(readerBuilder, times(1)).create();
+    }
+
+    @Test
+    void tail_joinsTailedTopicAlthoughMaxTopicsAreTailed() throws Exception {
+        messageTailService.tail(TATOOINE, MessageTailService.TailPolicy.DROP_OLDEST);
+        messageTailService.tail(TATOOINE, MessageTailService.TailPolicy.SAMPLE);
+
+        verify(readerBuilder, times(1)).create();
+    }
+
+}
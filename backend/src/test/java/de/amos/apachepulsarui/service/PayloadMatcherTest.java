@@ -0,0 +1,67 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.amos.apachepulsarui.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayloadMatcherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void substring_matchesContainedQuery() {
+        PayloadMatcher matcher = PayloadMatcher.create(PayloadMatcher.Mode.SUBSTRING, "Serenity", null, 1000, objectMapper);
+
+        assertThat(matcher.matches("{\"name\": \"Serenity\"}")).isTrue();
+        assertThat(matcher.matches("{\"name\": \"Nebuchadnezzar\"}")).isFalse();
+    }
+
+    @Test
+    void regex_findsPatternAnywhere() {
+        PayloadMatcher matcher = PayloadMatcher.create(PayloadMatcher.Mode.REGEX, "crew\": \\d{2}", null, 1000, objectMapper);
+
+        assertThat(matcher.matches("{\"crew\": 12}")).isTrue();
+        assertThat(matcher.matches("{\"crew\": 3}")).isFalse();
+    }
+
+    @Test
+    void regex_failsOnceMatchingTakesLongerThanTimeout() {
+        PayloadMatcher matcher = PayloadMatcher.create(PayloadMatcher.Mode.REGEX, "(.*a){12}b", null, 50, objectMapper);
+
+        assertThatThrownBy(() -> matcher.matches("a".repeat(100)))
+                .isInstanceOf(BadRequestException.InvalidSearchQuery.class);
+    }
+
+    @Test
+    void field_comparesValueOfDottedPath() {
+        PayloadMatcher matcher = PayloadMatcher.create(PayloadMatcher.Mode.FIELD, "Mal", "captain.name", 1000, objectMapper);
+
+        assertThat(matcher.matches("{\"captain\": {\"name\": \"Mal\"}}")).isTrue();
+        assertThat(matcher.matches("{\"captain\": {\"name\": \"Malcolm\"}}")).isFalse();
+        assertThat(matcher.matches("{\"name\": \"Mal\"}")).isFalse();
+        assertThat(matcher.matches("Mal")).isFalse();
+    }
+
+    @Test
+    void field_unwrapsAvroUnions() {
+        PayloadMatcher matcher = PayloadMatcher.create(PayloadMatcher.Mode.FIELD, "12", "/crew", 1000, objectMapper);
+
+        assertThat(matcher.matches("{\"crew\": {\"int\": 12}}")).isTrue();
+    }
+
+    @Test
+    void create_withInvalidRegex_throwsBadRequest() {
+        assertThatThrownBy(() -> PayloadMatcher.create(PayloadMatcher.Mode.REGEX, "(", null, 1000, objectMapper))
+                .isInstanceOf(BadRequestException.InvalidSearchQuery.class);
+    }
+
+    @Test
+    void create_fieldModeWithoutField_throwsBadRequest() {
+        assertThatThrownBy(() -> PayloadMatcher.create(PayloadMatcher.Mode.FIELD, "Mal", null, 1000, objectMapper))
+                .isInstanceOf(BadRequestException.InvalidSearchQuery.class);
+    }
+
+}
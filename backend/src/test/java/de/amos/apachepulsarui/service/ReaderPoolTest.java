@@ -0,0 +1,168 @@
+package de.amos.apachepulsarui.service;
+
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import de.amos.apachepulsarui.service.ReaderPool.PooledReader;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.Reader;
+import org.apache.pulsar.client.api.ReaderBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReaderPoolTest {
+
+    private static final String TOPIC = "persistent://public/default/tatooine";
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    @Mock
+    private PulsarClient pulsarClient;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private ReaderBuilder<byte[]> readerBuilder;
+    private ReaderPool readerPool;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        readerBuilder = mock(ReaderBuilder.class, RETURNS_SELF);
+        when(pulsarClient.newReader()).thenReturn(readerBuilder);
+        readerPool = new ReaderPool(pulsarClient, 1, IDLE_TIMEOUT_SECONDS, 100, nanos::get, Scheduler.disabledScheduler());
+    }
+
+    @Test
+    void acquire_reusesReleasedReader() throws Exception {
+        Reader<byte[]> reader = connectedReader();
+        when(readerBuilder.create()).thenReturn(reader);
+
+        readerPool.acquire(TOPIC).close();
+        PooledReader pooledReader = readerPool.acquire(TOPIC);
+
+        assertThat(pooledReader.reader()).isSameAs(reader);
+        verify(readerBuilder, times(1)).create();
+    }
+
+    @Test
+    void acquire_replacesDisconnectedReader() throws Exception {
+        Reader<byte[]> disconnected = connectedReader();
+        Reader<byte[]> reader = connectedReader();
+        when(readerBuilder.create()).thenReturn(disconnected, reader);
+
+        readerPool.acquire(TOPIC).close();
+        when(disconnected.isConnected()).thenReturn(false);
+        PooledReader pooledReader = readerPool.acquire(TOPIC);
+
+        assertThat(pooledReader.reader()).isSameAs(reader);
+        verify(disconnected).close();
+    }
+
+    @Test
+    void close_closesReadersBeyondMaxIdle() throws Exception {
+        Reader<byte[]> first = connectedReader();
+        Reader<byte[]> second = connectedReader();
+        when(readerBuilder.create()).thenReturn(first, second);
+
+        PooledReader firstPooled = readerPool.acquire(TOPIC);
+        PooledReader secondPooled = readerPool.acquire(TOPIC);
+        firstPooled.close();
+        secondPooled.close();
+
+        verify(first, never()).close();
+        verify(second).close();
+    }
+
+    @Test
+    void close_closesInvalidatedReader() throws Exception {
+        Reader<byte[]> reader = connectedReader();
+        when(readerBuilder.create()).thenReturn(reader);
+
+        PooledReader pooledReader = readerPool.acquire(TOPIC);
+        pooledReader.invalidate();
+        pooledReader.close();
+
+        verify(reader).close();
+        readerPool.acquire(TOPIC);
+        verify(readerBuilder, times(2)).create();
+    }
+
+    @Test
+    void idleReaders_areClosedAfterIdleTimeout() throws Exception {
+        Reader<byte[]> idle = connectedReader();
+        Reader<byte[]> reader = connectedReader();
+        when(readerBuilder.create()).thenReturn(idle, reader);
+
+        readerPool.acquire(TOPIC).close();
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS + 1));
+        PooledReader pooledReader = readerPool.acquire(TOPIC);
+
+        assertThat(pooledReader.reader()).isSameAs(reader);
+        verify(idle, timeout(1000)).close();
+    }
+
+    @Test
+    void idleReaders_areClosedWithoutFurtherRequests() throws Exception {
+        ReaderPool scheduledPool = new ReaderPool(pulsarClient, 1, 1, 100, Ticker.systemTicker(), Scheduler.systemScheduler());
+        Reader<byte[]> reader = connectedReader();
+        when(readerBuilder.create()).thenReturn(reader);
+
+        scheduledPool.acquire(TOPIC).close();
+
+        verify(reader, timeout(5000)).close();
+    }
+
+    @Test
+    void close_afterEvictionPoolsReaderInNewEntry() throws Exception {
+        Reader<byte[]> evicted = connectedReader();
+        Reader<byte[]> borrowed = connectedReader();
+        when(readerBuilder.create()).thenReturn(evicted, borrowed);
+
+        PooledReader evictedPooled = readerPool.acquire(TOPIC);
+        PooledReader borrowedPooled = readerPool.acquire(TOPIC);
+        evictedPooled.close();
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS + 1));
+        borrowedPooled.close();
+
+        verify(evicted, timeout(1000)).close();
+        assertThat(readerPool.acquire(TOPIC).reader()).isSameAs(borrowed);
+    }
+
+    @Test
+    void closeAll_closesReaderReleasedAfterEviction() throws Exception {
+        Reader<byte[]> reader = connectedReader();
+        when(readerBuilder.create()).thenReturn(reader);
+
+        PooledReader pooledReader = readerPool.acquire(TOPIC);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS + 1));
+        pooledReader.close();
+        readerPool.closeAll();
+
+        verify(reader, timeout(1000)).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Reader<byte[]> connectedReader() throws IOException {
+        Reader<byte[]> reader = mock(Reader.class);
+        when(reader.isConnected()).thenReturn(true);
+        return reader;
+    }
+
+}
@@ -0,0 +1,60 @@
+package de.amos.apachepulsarui.service;
+
+import de.amos.apachepulsarui.service.MessageTailService.TailPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailQueueTest {
+
+    @Test
+    void offer_withDropOldest_keepsLatestFrames() {
+        TailQueue queue = new TailQueue(3, TailPolicy.DROP_OLDEST, 1);
+
+        offerFrames(queue, 5);
+
+        assertThat(drain(queue)).containsExactly("2", "3", "4");
+        assertThat(queue.takeDropped()).isEqualTo(2);
+        assertThat(queue.takeDropped()).isZero();
+    }
+
+    @Test
+    void offer_withDropNewest_keepsFirstFrames() {
+        TailQueue queue = new TailQueue(3, TailPolicy.DROP_NEWEST, 1);
+
+        offerFrames(queue, 5);
+
+        assertThat(drain(queue)).containsExactly("0", "1", "2");
+        assertThat(queue.takeDropped()).isEqualTo(2);
+    }
+
+    @Test
+    void offer_withSample_thinsOutFramesOnceHalfFull() {
+        TailQueue queue = new TailQueue(4, TailPolicy.SAMPLE, 2);
+
+        offerFrames(queue, 8);
+
+        // frames 0 and 1 fill half of the queue, from then on every second frame is kept
+        assertThat(drain(queue)).containsExactly("0", "1", "3", "5");
+        assertThat(queue.takeDropped()).isEqualTo(4);
+    }
+
+    private static void offerFrames(TailQueue queue, int count) {
+        for (int i = 0; i < count; i++) {
+            queue.offer(String.valueOf(i).getBytes());
+        }
+    }
+
+    private static List<String> drain(TailQueue queue) {
+        List<String> frames = new ArrayList<>();
+        byte[] frame;
+        while ((frame = queue.poll()) != null) {
+            frames.add(new String(frame));
+        }
+        return frames;
+    }
+
+}
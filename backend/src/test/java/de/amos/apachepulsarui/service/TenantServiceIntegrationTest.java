@@ -66,6 +66,7 @@ public class TenantServiceIntegrationTest extends AbstractIntegrationTest {
 
         createTenant(name1);
         createTenant(name2);
+        topologySnapshot.refresh();
 
         List<TenantDto> tenants = tenantService.getAllFiltered(Collections.emptyList());
 
@@ -44,6 +44,7 @@ public class TopicServiceIntegrationTest extends AbstractIntegrationTest {
         List<String> namespaces = List.of("public/namespace1", "public/namespace2");
         createNewTopic("persistent://public/namespace1/topic1");
         createNewTopic("persistent://public/namespace2/topic1");
+        topologySnapshot.refresh();
         TopicStats topicstats1 = pulsarAdmin.topics().getStats("persistent://public/namespace1/topic1");
         TopicStats topicstats2 = pulsarAdmin.topics().getStats("persistent://public/namespace2/topic1");
 
@@ -61,6 +62,7 @@ public class TopicServiceIntegrationTest extends AbstractIntegrationTest {
                 "persistent://public/namespace2/topic4");
 
         createNewTopic("persistent://public/namespace1/topic3");
+        topologySnapshot.refresh();
         TopicStats topicstats3 = pulsarAdmin.topics().getStats("persistent://public/namespace1/topic3");
 
 
@@ -26,10 +26,12 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,6 +47,10 @@ class TopicServiceTest {
     private TopicStats topicStats;
     @Mock
     private Lookup lookup;
+    @Mock
+    private TopicStatsCollector topicStatsCollector;
+    @Mock
+    private TopologySnapshot topologySnapshot;
 
     @InjectMocks
     private TopicService topicService;
@@ -94,6 +100,27 @@ class TopicServiceTest {
         when(pulsarAdmin.schemas().getAllSchemas(TOPIC_NAME)).thenReturn(List.of());
     }
 
+    @Test
+    void getAllForTopics_checksTopicsMissingFromSnapshotOncePerNamespace() throws PulsarAdminException {
+        String created = "persistent://public/default/naboo";
+        String unknown = "persistent://public/default/hoth";
+        topicNameMockedStatic.when(() -> TopicName.get(Mockito.anyString())).thenCallRealMethod();
+        // the snapshot was taken before the topic got created
+        Topology.NamespaceNode namespace = new Topology.NamespaceNode(NAMESPACE, Set.of(TOPIC_NAME));
+        Topology.TenantNode tenant = new Topology.TenantNode("public", null, Map.of(NAMESPACE, namespace), 1);
+        when(topologySnapshot.get()).thenReturn(new Topology(0, Map.of(), Map.of("public", tenant)));
+        when(pulsarAdmin.topics()).thenReturn(topics);
+        when(topics.getList(NAMESPACE)).thenReturn(List.of(TOPIC_NAME, created));
+        when(topicStats.getSubscriptions()).thenReturn(Map.of());
+        when(topicStatsCollector.findAll(List.of(TOPIC_NAME, created)))
+                .thenReturn(Map.of(TOPIC_NAME, topicStats, created, topicStats));
+
+        List<TopicDto> existing = topicService.getAllForTopics(List.of(TOPIC_NAME, created, unknown));
+
+        assertEquals(List.of(TOPIC_NAME, created), existing.stream().map(TopicDto::getName).toList());
+        verify(topics, times(1)).getList(NAMESPACE);
+    }
+
     @Test
     void getTopicDetails() throws PulsarAdminException {
         whenTopicStats();
@@ -0,0 +1,68 @@
+package de.amos.apachepulsarui.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.pulsar.common.policies.data.PublisherStats;
+import org.apache.pulsar.common.policies.data.TopicStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopicStatsCollectorTest {
+
+    private static final String DUMP = """
+            {
+              "public/default": {
+                "0x00000000_0x40000000": {
+                  "persistent": {
+                    "persistent://public/default/tatooine": {
+                      "publishers": [{"producerId": 0, "producerName": "luke"}],
+                      "subscriptions": {"jedi": {"consumers": []}},
+                      "producerCount": 1,
+                      "averageMsgSize": 42.0,
+                      "msgInCount": 7,
+                      "msgOutCount": 5,
+                      "storageSize": 1024
+                    }
+                  },
+                  "non-persistent": {
+                    "non-persistent://public/default/naboo": {
+                      "publishers": [],
+                      "subscriptions": {}
+                    }
+                  }
+                }
+              }
+            }
+            """;
+
+    @Test
+    void indexTopics_indexesAllTopicsByName() throws Exception {
+        Map<String, TopicStats> index = new HashMap<>();
+
+        TopicStatsCollector.indexTopics(new ObjectMapper().readTree(DUMP), index);
+
+        assertThat(index).containsOnlyKeys(
+                "persistent://public/default/tatooine",
+                "non-persistent://public/default/naboo"
+        );
+    }
+
+    @Test
+    void indexTopics_takesOverStatsOfTopicViews() throws Exception {
+        Map<String, TopicStats> index = new HashMap<>();
+
+        TopicStatsCollector.indexTopics(new ObjectMapper().readTree(DUMP), index);
+
+        TopicStats stats = index.get("persistent://public/default/tatooine");
+        assertThat(stats.getMsgInCounter()).isEqualTo(7L);
+        assertThat(stats.getMsgOutCounter()).isEqualTo(5L);
+        assertThat(stats.getAverageMsgSize()).isEqualTo(42.0);
+        assertThat(stats.getStorageSize()).isEqualTo(1024L);
+        assertThat(stats.getSubscriptions()).containsOnlyKeys("jedi");
+        assertThat(stats.getPublishers()).extracting(PublisherStats::getProducerName).containsExactly("luke");
+    }
+
+}
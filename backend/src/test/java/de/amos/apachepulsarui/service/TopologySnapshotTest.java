@@ -0,0 +1,169 @@
+package de.amos.apachepulsarui.service;
+
+import org.apache.pulsar.client.admin.Clusters;
+import org.apache.pulsar.client.admin.Namespaces;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.admin.Tenants;
+import org.apache.pulsar.client.admin.Topics;
+import org.apache.pulsar.common.policies.data.TenantInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TopologySnapshotTest {
+
+    private static final TenantInfo TENANT_INFO = TenantInfo.builder().allowedClusters(Set.of("standalone")).build();
+
+    @Mock
+    private PulsarAdmin pulsarAdmin;
+    @Mock
+    private Clusters clusters;
+    @Mock
+    private Tenants tenants;
+    @Mock
+    private Namespaces namespaces;
+    @Mock
+    private Topics topics;
+
+    private TopologySnapshot topologySnapshot;
+
+    @BeforeEach
+    void setUp() throws PulsarAdminException {
+        when(pulsarAdmin.clusters()).thenReturn(clusters);
+        when(pulsarAdmin.tenants()).thenReturn(tenants);
+        when(pulsarAdmin.namespaces()).thenReturn(namespaces);
+        when(pulsarAdmin.topics()).thenReturn(topics);
+        when(clusters.getClusters()).thenReturn(List.of("standalone"));
+        when(tenants.getTenants()).thenReturn(List.of("tatooine", "naboo"));
+        when(tenants.getTenantInfoAsync("tatooine")).thenReturn(completedFuture(TENANT_INFO));
+        when(tenants.getTenantInfoAsync("naboo")).thenReturn(completedFuture(TENANT_INFO));
+        when(namespaces.getNamespacesAsync("tatooine")).thenReturn(completedFuture(List.of("tatooine/desert")));
+        when(namespaces.getNamespacesAsync("naboo")).thenReturn(completedFuture(List.of("naboo/lake")));
+        when(topics.getListAsync("tatooine/desert")).thenReturn(completedFuture(List.of("persistent://tatooine/desert/a")));
+        when(topics.getListAsync("naboo/lake")).thenReturn(completedFuture(List.of("persistent://naboo/lake/b")));
+
+        topologySnapshot = new TopologySnapshot(pulsarAdmin, 4);
+    }
+
+    @Test
+    void refresh_readsAllLevels() {
+        Topology topology = topologySnapshot.refresh();
+
+        assertThat(topology.clusters()).containsOnlyKeys("standalone");
+        assertThat(topology.tenants()).containsOnlyKeys("tatooine", "naboo");
+        assertThat(topology.getNamespace("naboo/lake")).hasValueSatisfying(namespace ->
+                assertThat(namespace.topics()).containsExactly("persistent://naboo/lake/b"));
+    }
+
+    @Test
+    void refresh_keepsUnchangedSubtrees() {
+        Topology previous = topologySnapshot.refresh();
+        when(topics.getListAsync("naboo/lake")).thenReturn(completedFuture(
+                List.of("persistent://naboo/lake/b", "persistent://naboo/lake/c")));
+
+        Topology topology = topologySnapshot.refresh();
+
+        assertThat(topology.tenants().get("tatooine")).isSameAs(previous.tenants().get("tatooine"));
+        assertThat(topology.tenants().get("naboo")).isNotSameAs(previous.tenants().get("naboo"));
+        assertThat(topology.getNamespace("naboo/lake")).hasValueSatisfying(namespace ->
+                assertThat(namespace.topics()).hasSize(2));
+    }
+
+    @Test
+    void refresh_skipsTenantsDeletedWhileReading() {
+        when(tenants.getTenantInfoAsync("naboo")).thenReturn(failedFuture(new PulsarAdminException.NotFoundException(
+                new RuntimeException("gone"), "Tenant does not exist", 404)));
+
+        Topology topology = topologySnapshot.refresh();
+
+        assertThat(topology.tenants()).containsOnlyKeys("tatooine");
+    }
+
+    @Test
+    void refresh_countsChildren() {
+        Topology topology = topologySnapshot.refresh();
+
+        assertThat(topology.clusters().get("standalone").numberOfTenants()).isEqualTo(2);
+        assertThat(topology.clusters().get("standalone").numberOfNamespaces()).isEqualTo(2);
+        assertThat(topology.tenants().get("tatooine").numberOfTopics()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_updatesCountsOfChangedChildren() throws PulsarAdminException {
+        topologySnapshot.refresh();
+        when(namespaces.getNamespacesAsync("tatooine")).thenReturn(completedFuture(
+                List.of("tatooine/desert", "tatooine/canyon")));
+        when(topics.getListAsync("tatooine/canyon")).thenReturn(completedFuture(
+                List.of("persistent://tatooine/canyon/c", "persistent://tatooine/canyon/d")));
+        when(tenants.getTenants()).thenReturn(List.of("tatooine"));
+
+        Topology topology = topologySnapshot.refresh();
+
+        assertThat(topology.clusters().get("standalone").numberOfTenants()).isEqualTo(1);
+        assertThat(topology.clusters().get("standalone").numberOfNamespaces()).isEqualTo(2);
+        assertThat(topology.tenants().get("tatooine").numberOfTopics()).isEqualTo(3);
+    }
+
+    @Test
+    void get_readsTopologyOnceForConcurrentFirstCalls() throws Exception {
+        when(tenants.getTenants()).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return List.of("tatooine", "naboo");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Topology>> topologies = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                topologies.add(executor.submit(topologySnapshot::get));
+            }
+            for (Future<Topology> topology : topologies) {
+                assertThat(topology.get()).isSameAs(topologies.get(0).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(tenants, times(1)).getTenants();
+    }
+
+    @Test
+    void tryRefresh_keepsPreviousSnapshotIfAdminApiFails() throws PulsarAdminException {
+        Topology previous = topologySnapshot.refresh();
+        when(tenants.getTenants()).thenThrow(new PulsarAdminException("unreachable"));
+
+        assertThat(topologySnapshot.tryRefresh()).isFalse();
+        assertThat(topologySnapshot.get()).isSameAs(previous);
+    }
+
+    @Test
+    void refresh_keepsCountsOfUnchangedTopology() {
+        Topology previous = topologySnapshot.refresh();
+
+        Topology topology = topologySnapshot.refresh();
+
+        assertThat(topology.clusters().get("standalone")).isSameAs(previous.clusters().get("standalone"));
+        assertThat(topology.tenants().get("naboo")).isSameAs(previous.tenants().get("naboo"));
+    }
+
+}
@@ -0,0 +1,142 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.pulsar.client.admin.PulsarAdmin;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.admin.Schemas;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageDecoderTest {
+
+    private static final String TOPIC = "persistent://public/default/spaceships";
+    private static final String SCHEMA_V0 = """
+            {"type":"record","name":"Spaceship","fields":[{"name":"name","type":"string"}]}
+            """;
+    private static final String SCHEMA_V1 = """
+            {"type":"record","name":"Spaceship","fields":[{"name":"crew","type":"int","default":0},{"name":"name","type":"string"}]}
+            """;
+
+    @Mock
+    private PulsarAdmin pulsarAdmin;
+    @Mock
+    private Schemas schemas;
+
+    private MessageDecoder messageDecoder;
+
+    @BeforeEach
+    void setUp() throws PulsarAdminException {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        messageDecoder = new MessageDecoder(
+                pulsarAdmin,
+                new PayloadDecoderRegistry(List.of(new AvroDecoderFactory()), cacheManager, 10),
+                new SchemaVersionCache(pulsarAdmin, cacheManager, 10, 60)
+        );
+        when(pulsarAdmin.schemas()).thenReturn(schemas);
+        SchemaInfo latest = schemaInfo(SCHEMA_V1);
+        when(schemas.getSchemaInfo(TOPIC)).thenReturn(latest);
+    }
+
+    @Test
+    void decodePayload_usesSchemaVersionOfMessage() throws IOException {
+        SchemaInfo versionZero = schemaInfo(SCHEMA_V0);
+        when(schemas.getSchemaInfoAsync(TOPIC, 0L)).thenReturn(CompletableFuture.completedFuture(versionZero));
+        Message<byte[]> first = message(0, encode(SCHEMA_V0, "Serenity"));
+        Message<byte[]> second = message(0, encode(SCHEMA_V0, "Nebuchadnezzar"));
+
+        MessageDecoder.TopicDecoder decoder = messageDecoder.forTopic(TOPIC);
+
+        assertThat(decoder.decodePayload(first)).contains("\"name\" : \"Serenity\"");
+        assertThat(decoder.decodePayload(second)).contains("\"name\" : \"Nebuchadnezzar\"");
+        verify(schemas, times(1)).getSchemaInfoAsync(TOPIC, 0L);
+    }
+
+    @Test
+    void resolveSchemas_fetchesEveryNewVersionOnceBeforeDecoding() throws IOException {
+        CompletableFuture<SchemaInfo> versionZero = new CompletableFuture<>();
+        when(schemas.getSchemaInfoAsync(TOPIC, 0L)).thenReturn(versionZero);
+        when(schemas.getSchemaInfoAsync(TOPIC, 1L)).thenAnswer(invocation -> {
+            // version 0 has been requested already, so both are in flight at the same time
+            versionZero.complete(schemaInfo(SCHEMA_V0));
+            return CompletableFuture.completedFuture(schemaInfo(SCHEMA_V1));
+        });
+        Message<byte[]> first = message(0, encode(SCHEMA_V0, "Serenity"));
+        Message<byte[]> second = message(1, encode(SCHEMA_V1, "Nebuchadnezzar"));
+        Message<byte[]> third = message(0, encode(SCHEMA_V0, "Galactica"));
+
+        MessageDecoder.TopicDecoder decoder = messageDecoder.forTopic(TOPIC);
+        decoder.resolveSchemas(List.of(first, second, third));
+
+        assertThat(decoder.decodePayload(first)).contains("\"name\" : \"Serenity\"");
+        assertThat(decoder.decodePayload(second)).contains("\"crew\" : 9");
+        assertThat(decoder.decodePayload(third)).contains("\"name\" : \"Galactica\"");
+        verify(schemas, times(1)).getSchemaInfoAsync(TOPIC, 0L);
+        verify(schemas, times(1)).getSchemaInfoAsync(TOPIC, 1L);
+    }
+
+    @Test
+    void decodePayload_withUnavailableVersion_usesLatestSchema() throws IOException {
+        when(schemas.getSchemaInfoAsync(TOPIC, 3L))
+                .thenReturn(CompletableFuture.failedFuture(new PulsarAdminException("gone")));
+        Message<byte[]> message = message(3, encode(SCHEMA_V1, "Serenity"));
+
+        assertThat(messageDecoder.forTopic(TOPIC).decodePayload(message)).contains("\"name\" : \"Serenity\"");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Message<byte[]> message(long schemaVersion, byte[] data) {
+        Message<byte[]> message = mock(Message.class);
+        when(message.getSchemaVersion()).thenReturn(ByteBuffer.allocate(Long.BYTES).putLong(schemaVersion).array());
+        when(message.getData()).thenReturn(data);
+        return message;
+    }
+
+    private static SchemaInfo schemaInfo(String schemaDefinition) {
+        return SchemaInfo.builder()
+                .name("spaceships")
+                .type(SchemaType.AVRO)
+                .schema(schemaDefinition.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static byte[] encode(String schemaDefinition, String name) throws IOException {
+        Schema schema = new Schema.Parser().parse(schemaDefinition);
+        GenericRecord spaceship = new GenericData.Record(schema);
+        spaceship.put("name", name);
+        if (schema.getField("crew") != null) {
+            spaceship.put("crew", 9);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(output, null);
+        new GenericDatumWriter<GenericRecord>(schema).write(spaceship, encoder);
+        encoder.flush();
+        return output.toByteArray();
+    }
+
+}
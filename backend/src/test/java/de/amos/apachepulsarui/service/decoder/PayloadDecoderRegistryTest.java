@@ -0,0 +1,209 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.JsonEncoder;
+import org.apache.pulsar.client.impl.schema.KeyValueSchemaInfo;
+import org.apache.pulsar.common.schema.KeyValue;
+import org.apache.pulsar.common.schema.KeyValueEncodingType;
+import org.apache.pulsar.common.schema.SchemaInfo;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayloadDecoderRegistryTest {
+
+    private static final String SCHEMA = """
+            {"type":"record","name":"Spaceship","fields":[{"name":"name","type":"string"},{"name":"crew","type":"int"}]}
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    private final PayloadDecoderRegistry registry = new PayloadDecoderRegistry(
+            List.of(
+                    new AvroDecoderFactory(),
+                    new JsonDecoderFactory(),
+                    new PrimitiveDecoderFactory(),
+                    new KeyValueDecoderFactory(),
+                    new ProtobufDecoderFactory(objectMapper),
+                    new ProtobufNativeDecoderFactory(objectMapper)
+            ),
+            cacheManager,
+            10
+    );
+
+    @Test
+    void forSchema_compilesSchemaOnlyOnce() {
+        PayloadDecoder first = registry.forSchema(schemaInfo(SchemaType.AVRO, SCHEMA)).orElseThrow();
+        PayloadDecoder second = registry.forSchema(schemaInfo(SchemaType.AVRO, SCHEMA)).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(cacheManager.getCacheNames()).contains(PayloadDecoderRegistry.CACHE_NAME);
+    }
+
+    @Test
+    void forSchema_withoutValidSchema_returnsEmpty() {
+        assertThat(registry.forSchema(null)).isEmpty();
+        assertThat(registry.forSchema(schemaInfo(SchemaType.AVRO, "no avro"))).isEmpty();
+        assertThat(registry.forSchema(schemaInfo(SchemaType.BYTES, ""))).isEmpty();
+    }
+
+    @Test
+    void decode_avro_decodesConsecutivePayloads() throws IOException {
+        AvroDecoder decoder = (AvroDecoder) registry.forSchema(schemaInfo(SchemaType.AVRO, SCHEMA)).orElseThrow();
+
+        assertThat(decoder.decode(encode(decoder.getSchema(), "Serenity", 9)))
+                .contains("\"name\" : \"Serenity\"", "\"crew\" : 9");
+        assertThat(decoder.decode(encode(decoder.getSchema(), "Nebuchadnezzar", 7)))
+                .contains("\"name\" : \"Nebuchadnezzar\"", "\"crew\" : 7");
+    }
+
+    @Test
+    void decode_avro_writesEveryPayloadLikeAFreshEncoder() throws IOException {
+        AvroDecoder decoder = (AvroDecoder) registry.forSchema(schemaInfo(SchemaType.AVRO, SCHEMA)).orElseThrow();
+        byte[] first = encode(decoder.getSchema(), "Serenity", 9);
+        byte[] second = encode(decoder.getSchema(), "Nebuchadnezzar", 7);
+
+        assertThat(decoder.decode(first)).isEqualTo(decodeWithFreshEncoder(decoder.getSchema(), first));
+        assertThat(decoder.decode(second)).isEqualTo(decodeWithFreshEncoder(decoder.getSchema(), second));
+        assertThat(decoder.decode(first)).isEqualTo(decodeWithFreshEncoder(decoder.getSchema(), first));
+    }
+
+    @Test
+    void writeJson_avro_streamsSameJsonAsDecode() throws IOException {
+        String schema = """
+                {"type":"record","name":"Spaceship","fields":[
+                  {"name":"name","type":"string"},
+                  {"name":"captain","type":["null","string"]},
+                  {"name":"cargo","type":{"type":"map","values":"long"}},
+                  {"name":"ports","type":{"type":"array","items":"string"}}
+                ]}
+                """;
+        AvroDecoder decoder = (AvroDecoder) registry.forSchema(schemaInfo(SchemaType.AVRO, schema)).orElseThrow();
+        GenericRecord spaceship = new GenericData.Record(decoder.getSchema());
+        spaceship.put("name", "Serenity \"Firefly\"");
+        spaceship.put("captain", "Mal");
+        spaceship.put("cargo", Map.of("protein", 12L));
+        spaceship.put("ports", List.of("Persephone", "Beaumonde"));
+        byte[] payload = encode(decoder.getSchema(), spaceship);
+
+        StringWriter streamed = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(streamed)) {
+            decoder.writeJson(payload, generator);
+        }
+
+        assertThat(objectMapper.readTree(streamed.toString())).isEqualTo(objectMapper.readTree(decoder.decode(payload)));
+    }
+
+    @Test
+    void writeJson_json_rejectsPayloadThatIsNoJson() {
+        PayloadDecoder decoder = registry.forSchema(schemaInfo(SchemaType.JSON, SCHEMA)).orElseThrow();
+        StringWriter streamed = new StringWriter();
+
+        assertThatThrownBy(() -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(streamed)) {
+                decoder.writeJson("Serenity\"}".getBytes(StandardCharsets.UTF_8), generator);
+            }
+        }).isInstanceOf(IOException.class);
+        assertThat(streamed.toString()).isEmpty();
+    }
+
+    @Test
+    void decode_json_keepsPayloadAlthoughDefinitionLooksLikeAvro() throws IOException {
+        PayloadDecoder decoder = registry.forSchema(schemaInfo(SchemaType.JSON, SCHEMA)).orElseThrow();
+
+        assertThat(decoder.decode("{\"name\":\"Serenity\",\"crew\":9}".getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo("{\"name\":\"Serenity\",\"crew\":9}");
+    }
+
+    @Test
+    void decode_primitive_usesPulsarSchemaOfType() throws IOException {
+        PayloadDecoder decoder = registry.forSchema(org.apache.pulsar.client.api.Schema.INT64.getSchemaInfo()).orElseThrow();
+
+        assertThat(decoder.decode(org.apache.pulsar.client.api.Schema.INT64.encode(42L))).isEqualTo("42");
+    }
+
+    @Test
+    void decode_inlineKeyValue_decodesKeyAndValue() throws IOException {
+        SchemaInfo keyValueSchema = KeyValueSchemaInfo.encodeKeyValueSchemaInfo(
+                org.apache.pulsar.client.api.Schema.STRING,
+                org.apache.pulsar.client.api.Schema.INT32,
+                KeyValueEncodingType.INLINE
+        );
+        byte[] payload = KeyValue.encode(
+                "crew", org.apache.pulsar.client.api.Schema.STRING,
+                9, org.apache.pulsar.client.api.Schema.INT32
+        );
+
+        PayloadDecoder decoder = registry.forSchema(keyValueSchema).orElseThrow();
+
+        assertThat(decoder.decode(payload)).isEqualTo("{\"key\": \"crew\", \"value\": \"9\"}");
+    }
+
+    @Test
+    void forSchema_keyValue_distinguishesEncodingTypes() {
+        PayloadDecoder inline = registry.forSchema(KeyValueSchemaInfo.encodeKeyValueSchemaInfo(
+                org.apache.pulsar.client.api.Schema.STRING,
+                org.apache.pulsar.client.api.Schema.INT32,
+                KeyValueEncodingType.INLINE
+        )).orElseThrow();
+        PayloadDecoder separated = registry.forSchema(KeyValueSchemaInfo.encodeKeyValueSchemaInfo(
+                org.apache.pulsar.client.api.Schema.STRING,
+                org.apache.pulsar.client.api.Schema.INT32,
+                KeyValueEncodingType.SEPARATED
+        )).orElseThrow();
+
+        assertThat(separated).isNotSameAs(inline);
+    }
+
+    private static SchemaInfo schemaInfo(SchemaType type, String definition) {
+        return SchemaInfo.builder()
+                .name("spaceships")
+                .type(type)
+                .schema(definition.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static String decodeWithFreshEncoder(Schema schema, byte[] payload) throws IOException {
+        Object datum = new GenericDatumReader<>(schema).read(null, DecoderFactory.get().binaryDecoder(payload, null));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JsonEncoder encoder = EncoderFactory.get().jsonEncoder(schema, output, true);
+        new GenericDatumWriter<>(schema).write(datum, encoder);
+        encoder.flush();
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(Schema schema, String name, int crew) throws IOException {
+        GenericRecord spaceship = new GenericData.Record(schema);
+        spaceship.put("name", name);
+        spaceship.put("crew", crew);
+        return encode(schema, spaceship);
+    }
+
+    private static byte[] encode(Schema schema, GenericRecord spaceship) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(output, null);
+        new GenericDatumWriter<GenericRecord>(schema).write(spaceship, encoder);
+        encoder.flush();
+        return output.toByteArray();
+    }
+
+}
@@ -0,0 +1,40 @@
+package de.amos.apachepulsarui.service.decoder;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadPreviewTest {
+
+    @Test
+    void truncate_keepsTextThatFits() {
+        assertThat(PayloadPreview.truncate("Serenity", 8)).isEqualTo("Serenity");
+    }
+
+    @Test
+    void truncate_cutsAtByteLength() {
+        assertThat(PayloadPreview.truncate("Serenity", 4)).isEqualTo("Sere");
+    }
+
+    @Test
+    void truncate_doesNotSplitMultiByteCharacters() {
+        // ü takes two bytes, the rocket four
+        assertThat(PayloadPreview.truncate("Düsentrieb", 2)).isEqualTo("D");
+        assertThat(PayloadPreview.truncate("a🚀b", 4)).isEqualTo("a");
+        assertThat(PayloadPreview.truncate("a🚀b", 5)).isEqualTo("a🚀");
+    }
+
+    @Test
+    void isText_acceptsUtf8Text() {
+        assertThat(PayloadPreview.isText("Düsentrieb\n🚀".getBytes(StandardCharsets.UTF_8))).isTrue();
+    }
+
+    @Test
+    void isText_rejectsBinary() {
+        assertThat(PayloadPreview.isText(new byte[]{0x08, (byte) 0x96, 0x01})).isFalse();
+        assertThat(PayloadPreview.isText(new byte[]{'a', (byte) 0xC3})).isFalse();
+    }
+
+}
@@ -2,7 +2,9 @@
 // SPDX-FileCopyrightText: 2023 Julian Tochman-Szewc <tochman-szewc@campus.tu-berlin.de>
 // SPDX-FileCopyrightText: 2023 Shahraz Nasir <shahraz.nasir@campus.tu-berlin.de>
 // SPDX-FileCopyrightText: 2023 Ziqi He <ziqi.he@fau.de>
-import React from 'react'
+import React, { useState } from 'react'
+import axios from 'axios'
+import config from '../../config'
 
 /**
  * The MessageView component displays message details.
@@ -22,9 +24,30 @@ const MessageView: React.FC<MessageViewProps> = ({ data }) => {
 		tenant,
 		publishTime,
 		producer,
+		payloadSize,
+		payloadTruncated,
+		binary,
 	} = data
 
 	const publishDate = new Date(publishTime)
+	const [fullPayload, setFullPayload] = useState<string | null>(null)
+
+	// Listings only contain a preview of long payloads, the whole payload is fetched on demand
+	const fetchFullPayload = () => {
+		const url = config.backendUrl + '/api/messages/' + messageId
+		axios
+			.get<MessageInfo>(url, {
+				params: {
+					topic: topic,
+				},
+			})
+			.then((response) => {
+				setFullPayload(response.data.payload)
+			})
+			.catch((error) => {
+				console.log(error)
+			})
+	}
 
 	return (
 		<div className="flex flex-col card-content">
@@ -53,10 +76,15 @@ const MessageView: React.FC<MessageViewProps> = ({ data }) => {
 					<div className="grey-line"></div>
 					<div className="flex card-info">
 						<div className="text-black schema-box-wrapper">
-							Payload:<br></br>
+							Payload{binary ? ' (binary)' : ''}:<br></br>
 							<span className="schema-box">
-								<pre className="text-black">{payload}</pre>
+								<pre className="text-black">{fullPayload ?? payload}</pre>
 							</span>
+							{payloadTruncated && fullPayload === null && (
+								<button className="text-grey" onClick={fetchFullPayload}>
+									Show all {payloadSize} bytes
+								</button>
+							)}
 						</div>
 						<div className="text-black schema-box-wrapper">
 							Schema:<br></br>
@@ -50,6 +50,7 @@ declare global {
 		subscriptions: string[]
 		producers: string[]
 		messagesSendToTopic: number
+		statsTimedOut: boolean
 	}
 
 	interface ClusterDetail {
@@ -189,6 +190,12 @@ declare global {
 		tenant: string
 		publishTime: number
 		producer: string
+		key: string | null
+		properties: Record<string, string>
+		eventTime: number | null
+		payloadSize: number
+		payloadTruncated: boolean
+		binary: boolean
 	}
 
 	interface CustomFilterProps {